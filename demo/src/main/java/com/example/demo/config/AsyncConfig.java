@@ -1,5 +1,6 @@
 package com.example.demo.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -58,4 +59,47 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Executor for BCrypt hashing and verification (login, registration).
+     * Sized to the CPU cores with a short queue: when it is full new work is rejected
+     * (TaskRejectedException -> 429 via ApiExceptionHandler) instead of piling CPU-bound hashes onto request threads.
+     */
+    @Bean(name = "passwordHashingExecutor")
+    public Executor passwordHashingExecutor(
+            @Value("${security.password.hashing-threads:0}") int threads,
+            @Value("${security.password.hashing-queue:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for payment QR encoding, one thread per core. When the queue is full the
+     * request thread encodes its own codes, so overload degrades to sequential encoding.
+     */
+    @Bean(name = "qrExecutor")
+    public Executor qrExecutor(
+            @Value("${app.payment.qr-threads:0}") int threads,
+            @Value("${app.payment.qr-queue:128}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("qr-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
 }
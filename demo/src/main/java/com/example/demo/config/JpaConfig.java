@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hibernate write batching. Without a JDBC batch size every flushed UPDATE is its own
+ * round trip, and without ordered updates a flush touching several entity types breaks
+ * the batch at each change of statement. Bulk paths may raise the size per session.
+ */
+@Configuration
+public class JpaConfig {
+
+    @Value("${app.jpa.batch-size:50}")
+    private int batchSize;
+
+    @Bean
+    public HibernatePropertiesCustomizer batchingCustomizer() {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", batchSize);
+            properties.putIfAbsent("hibernate.order_updates", true);
+        };
+    }
+}
@@ -4,6 +4,8 @@ import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,11 +17,27 @@ import org.springframework.kafka.config.KafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.serializer.DelegatingByTopicDeserializer;
+import org.springframework.kafka.support.serializer.DelegatingByTopicSerializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.StringUtils;
+
+import com.example.demo.event.AppointmentEvent;
+import com.example.demo.event.AppointmentTimeline;
+import com.example.demo.event.HealthRecordEvent;
+import com.example.demo.event.OrderEvent;
+import com.example.demo.event.PrescriptionEvent;
+import com.example.demo.kafka.serialization.AvroEventDeserializer;
+import com.example.demo.kafka.serialization.AvroEventSerializer;
+import com.example.demo.kafka.serialization.LocalSchemaRegistry;
+import com.example.demo.kafka.serialization.TypedJsonDeserializer;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 @Configuration
 @EnableKafka
@@ -40,9 +58,29 @@ public class KafkaConfig {
     @Value("${kafka.topic.health-record:health-records}")
     private String healthRecordTopic;
 
+    @Value("${kafka.topic.appointment-state:appointments-state}")
+    private String appointmentStateTopic;
+
+    // Also read by the state view listener, which assigns itself every partition
+    @Value("${kafka.topic.appointment-state-partitions:3}")
+    private int appointmentStatePartitions;
+
     @Value("${kafka.topic.notifications:notifications}")
     private String notificationsTopic;
 
+    @Value("${kafka.producer.linger-ms:10}")
+    private int producerLingerMs;
+
+    @Value("${kafka.producer.batch-size:16384}")
+    private int producerBatchSize;
+
+    @Value("${kafka.producer.max-block-ms:2000}")
+    private long producerMaxBlockMs;
+
+    // Topics whose events are written as compact Avro instead of JSON, e.g. "appointments,orders"
+    @Value("${kafka.serialization.binary-topics:}")
+    private String binaryTopics;
+
     // ==================== Admin Config ====================
     @Bean
     public KafkaAdmin kafkaAdmin() {
@@ -60,6 +98,16 @@ public class KafkaConfig {
                 .build();
     }
 
+    // Latest snapshot per appointment; compaction keeps the topic bounded by appointment count
+    @Bean
+    public NewTopic appointmentStateTopic() {
+        return TopicBuilder.name(appointmentStateTopic)
+                .partitions(appointmentStatePartitions)
+                .replicas(1)
+                .compact()
+                .build();
+    }
+
     @Bean
     public NewTopic prescriptionTopic() {
         return TopicBuilder.name(prescriptionTopic)
@@ -94,54 +142,120 @@ public class KafkaConfig {
 
     // ==================== Producer Config ====================
     @Bean
-    public ProducerFactory<String, Object> producerFactory() {
+    public ProducerFactory<String, Object> producerFactory(LocalSchemaRegistry schemaRegistry) {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 10);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, producerLingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, producerBatchSize);
         configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "snappy");
-        return new DefaultKafkaProducerFactory<>(configProps);
+        // send() is non-blocking except while waiting for metadata or buffer space;
+        // cap that so an unreachable broker cannot stall request threads for 60s
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, producerMaxBlockMs);
+        return new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(), valueSerializer(schemaRegistry));
     }
 
     @Bean
-    public KafkaTemplate<String, Object> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
     }
 
     // ==================== Consumer Config ====================
-    @Bean
-    public ConsumerFactory<String, Object> consumerFactory() {
+    private Map<String, Object> consumerProps() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "default-group");
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
-        configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.example.demo.event.Event");
-        configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         // DEADLOCK FIX: Timeout configs prevent indefinite blocking on network operations
         configProps.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, 30000);
         configProps.put(ConsumerConfig.REQUEST_TIMEOUT_MS_CONFIG, 30000);
         configProps.put(ConsumerConfig.HEARTBEAT_INTERVAL_MS_CONFIG, 10000);
         configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500);
         configProps.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, 300000);
-        return new DefaultKafkaConsumerFactory<>(configProps);
+        return configProps;
     }
 
+    /**
+     * Generic consumer for ad-hoc listeners. Producers no longer send type headers,
+     * so values arrive as {@link com.example.demo.event.Event}; the domain event
+     * listeners use the typed factories below instead.
+     */
     @Bean
-    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, Object>> kafkaListenerContainerFactory() {
+    public ConsumerFactory<String, Object> consumerFactory(LocalSchemaRegistry schemaRegistry) {
+        Map<String, Object> configProps = consumerProps();
+        configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.example.demo.event.Event");
+        configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
+        return new DefaultKafkaConsumerFactory<>(configProps, new StringDeserializer(), valueDeserializer(schemaRegistry));
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, Object>> kafkaListenerContainerFactory(
+            ConsumerFactory<String, Object> consumerFactory) {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
+        factory.setConsumerFactory(consumerFactory);
         // DEADLOCK FIX: Increased concurrency from 3 to 10 to prevent thread pool exhaustion
         // when notifications or other I/O operations block in listeners
         factory.setConcurrency(10);
         return factory;
     }
 
+    // ==================== Typed Event Consumers ====================
+    // One factory per event type: values are read straight into the concrete class
+    // with a pre-built reader. Concurrency matches the topic's partition count.
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, AppointmentEvent>> appointmentKafkaListenerContainerFactory(
+            LocalSchemaRegistry schemaRegistry) {
+        return eventListenerContainerFactory(AppointmentEvent.class, appointmentTopic, 3, schemaRegistry);
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, PrescriptionEvent>> prescriptionKafkaListenerContainerFactory(
+            LocalSchemaRegistry schemaRegistry) {
+        return eventListenerContainerFactory(PrescriptionEvent.class, prescriptionTopic, 3, schemaRegistry);
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, OrderEvent>> orderKafkaListenerContainerFactory(
+            LocalSchemaRegistry schemaRegistry) {
+        return eventListenerContainerFactory(OrderEvent.class, orderTopic, 3, schemaRegistry);
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, HealthRecordEvent>> healthRecordKafkaListenerContainerFactory(
+            LocalSchemaRegistry schemaRegistry) {
+        return eventListenerContainerFactory(HealthRecordEvent.class, healthRecordTopic, 2, schemaRegistry);
+    }
+
+    /**
+     * Reads the appointments-state topic into the timeline view. A single consumer per
+     * instance is enough: snapshots are small and the listener only updates a map.
+     */
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<String, AppointmentTimeline>> appointmentStateKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, AppointmentTimeline> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(
+                consumerProps(), new StringDeserializer(), new TypedJsonDeserializer<>(AppointmentTimeline.class)));
+        factory.setConcurrency(1);
+        return factory;
+    }
+
+    private <T> ConcurrentKafkaListenerContainerFactory<String, T> eventListenerContainerFactory(
+            Class<T> eventType, String topic, int concurrency, LocalSchemaRegistry schemaRegistry) {
+        Deserializer<T> valueDeserializer = binaryTopics().contains(topic)
+                ? new AvroEventDeserializer<>(schemaRegistry, eventType)
+                : new TypedJsonDeserializer<>(eventType);
+        ConcurrentKafkaListenerContainerFactory<String, T> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(
+                consumerProps(), new StringDeserializer(), valueDeserializer));
+        factory.setConcurrency(concurrency);
+        return factory;
+    }
+
     // ==================== String Consumer (for simple messages) ====================
     @Bean
     public ConsumerFactory<String, String> stringConsumerFactory() {
@@ -161,4 +275,53 @@ public class KafkaConfig {
         factory.setConsumerFactory(stringConsumerFactory());
         return factory;
     }
+
+    // ==================== Per-topic Serialization ====================
+
+    /**
+     * Event type carried by each domain topic
+     */
+    private Map<String, Class<?>> eventTypesByTopic() {
+        Map<String, Class<?>> types = new LinkedHashMap<>();
+        types.put(appointmentTopic, AppointmentEvent.class);
+        types.put(prescriptionTopic, PrescriptionEvent.class);
+        types.put(orderTopic, OrderEvent.class);
+        types.put(healthRecordTopic, HealthRecordEvent.class);
+        return types;
+    }
+
+    private Set<String> binaryTopics() {
+        Set<String> topics = StringUtils.commaDelimitedListToSet(binaryTopics.replace(" ", ""));
+        topics.remove("");
+        for (String topic : topics) {
+            if (!eventTypesByTopic().containsKey(topic)) {
+                throw new IllegalStateException("kafka.serialization.binary-topics: no event type known for topic " + topic);
+            }
+        }
+        return topics;
+    }
+
+    /**
+     * Avro for the configured binary topics, JSON for everything else
+     */
+    private Serializer<Object> valueSerializer(LocalSchemaRegistry schemaRegistry) {
+        Map<Pattern, Serializer<?>> delegates = new LinkedHashMap<>();
+        for (String topic : binaryTopics()) {
+            delegates.put(Pattern.compile(Pattern.quote(topic)),
+                    new AvroEventSerializer<>(schemaRegistry, eventTypesByTopic().get(topic)));
+        }
+        // Consumers are bound to a concrete event type per topic, so the __TypeId__ header is dead weight
+        JsonSerializer<Object> jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.setAddTypeInfo(false);
+        return new DelegatingByTopicSerializer(delegates, jsonSerializer);
+    }
+
+    private Deserializer<Object> valueDeserializer(LocalSchemaRegistry schemaRegistry) {
+        Map<Pattern, Deserializer<?>> delegates = new LinkedHashMap<>();
+        for (String topic : binaryTopics()) {
+            delegates.put(Pattern.compile(Pattern.quote(topic)),
+                    new AvroEventDeserializer<>(schemaRegistry, eventTypesByTopic().get(topic)));
+        }
+        return new DelegatingByTopicDeserializer(delegates, new JsonDeserializer<>());
+    }
 }
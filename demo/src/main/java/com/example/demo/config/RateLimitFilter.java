@@ -0,0 +1,117 @@
+package com.example.demo.config;
+
+import com.example.demo.service.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rejects floods on the expensive unauthenticated or SMS-sending endpoints with 429
+ * before they reach BCrypt or Twilio. Runs after JwtAuthenticationFilter so the OTP
+ * endpoints can be limited per user rather than per address.
+ */
+@Component
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final boolean enabled;
+    private final RateLimiter.Limit loginLimit;
+    private final RateLimiter.Limit otpSendLimit;
+    private final RateLimiter.Limit otpVerifyLimit;
+    private final RateLimiter.Limit inboundSmsLimit;
+    private final List<IpAddressMatcher> trustedProxies;
+
+    public RateLimitFilter(RateLimiter rateLimiter,
+                           @Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.login.per-minute:10}") int loginPerMinute,
+                           @Value("${rate-limit.otp-send.resend-seconds:60}") long otpResendSeconds,
+                           @Value("${rate-limit.otp-verify.per-10-minutes:10}") int otpVerifyPer10Minutes,
+                           @Value("${rate-limit.twilio-inbound.per-minute:300}") int inboundPerMinute,
+                           @Value("${rate-limit.trusted-proxies:127.0.0.1,::1}") String trustedProxies) {
+        this.rateLimiter = rateLimiter;
+        this.enabled = enabled;
+        this.loginLimit = new RateLimiter.Limit("login", loginPerMinute, Duration.ofMinutes(1));
+        this.otpSendLimit = new RateLimiter.Limit("otp-send", 1, Duration.ofSeconds(otpResendSeconds));
+        this.otpVerifyLimit = new RateLimiter.Limit("otp-verify", otpVerifyPer10Minutes, Duration.ofMinutes(10));
+        this.inboundSmsLimit = new RateLimiter.Limit("twilio-inbound", inboundPerMinute, Duration.ofMinutes(1));
+        this.trustedProxies = Arrays.stream(trustedProxies.split(","))
+                .map(String::trim)
+                .filter(address -> !address.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RateLimiter.Decision decision = switch (request.getRequestURI()) {
+            case "/api/login" -> rateLimiter.tryAcquire(clientAddress(request), loginLimit);
+            case "/api/phone/send-otp" -> rateLimiter.tryAcquire(userOrAddress(request), otpSendLimit);
+            case "/api/phone/verify-otp" -> rateLimiter.tryAcquire(userOrAddress(request), otpVerifyLimit);
+            // From is caller-supplied until the Twilio signature is checked, so limit per address;
+            // genuine traffic shares Twilio's few addresses, hence the higher default
+            case "/api/twilio/inbound" -> rateLimiter.tryAcquire(clientAddress(request), inboundSmsLimit);
+            default -> RateLimiter.Decision.ALLOWED;
+        };
+
+        if (!decision.allowed()) {
+            log.warn("Rate limit hit on {} from {}", request.getRequestURI(), clientAddress(request));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", String.valueOf(decision.retryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\":\"Too many requests. Please wait before retrying.\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private String userOrAddress(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof String userId) {
+            return "user:" + userId;
+        }
+        return clientAddress(request);
+    }
+
+    // nginx sets X-Real-IP to the connecting address; the header is only trusted when the
+    // request comes from one of the configured proxies (addresses or CIDR ranges)
+    private String clientAddress(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        String realIp = request.getHeader("X-Real-IP");
+        if (realIp != null && !realIp.isBlank() && isTrustedProxy(remoteAddr)) {
+            return "ip:" + realIp.trim();
+        }
+        return "ip:" + remoteAddr;
+    }
+
+    private boolean isTrustedProxy(String remoteAddr) {
+        for (IpAddressMatcher proxy : trustedProxies) {
+            if (proxy.matches(remoteAddr)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
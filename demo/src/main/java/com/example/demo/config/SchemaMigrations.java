@@ -0,0 +1,66 @@
+package com.example.demo.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Schema changes Hibernate cannot express (partial indexes, data backfills).
+ * Runs after the entity manager has created or updated the tables; every statement
+ * must be idempotent because it executes on each startup of each instance.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SchemaMigrations implements SmartInitializingSingleton {
+
+    private static final List<String> STATEMENTS = List.of(
+            // appointments.time: free-form varchar -> time. Unparseable values become NULL (availability
+            // already ignored them), so the column drops NOT NULL; the entity still requires a time on write.
+            "DO $$ BEGIN "
+                    + "IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_name = 'appointments' "
+                    + "AND column_name = 'time' AND data_type IN ('character varying', 'text')) THEN "
+                    + "ALTER TABLE appointments ALTER COLUMN \"time\" DROP NOT NULL; "
+                    + "ALTER TABLE appointments ALTER COLUMN \"time\" TYPE time USING (CASE "
+                    + "WHEN trim(\"time\") ~ '^([01]?[0-9]|2[0-3]):[0-5][0-9](:[0-5][0-9])?$' THEN trim(\"time\")::time "
+                    + "END); "
+                    + "END IF; "
+                    + "END $$",
+            // conversations.last_message_at: backfill rows created before the column existed
+            "UPDATE conversations c SET last_message_at = m.latest FROM (SELECT conversation_id, max(created_at) AS latest "
+                    + "FROM messages GROUP BY conversation_id) m WHERE m.conversation_id = c.id AND c.last_message_at IS NULL",
+            // conversations.version: rows created before optimistic locking start at 0
+            "UPDATE conversations SET version = 0 WHERE version IS NULL",
+            // conversations.unanswered: existing rows count as answered, so the engine never moves them
+            "UPDATE conversations SET unanswered = false WHERE unanswered IS NULL",
+            // Lookup of older pending rows per key when the outbox relay picks its next batch
+            "CREATE INDEX IF NOT EXISTS idx_event_outbox_pending_key ON event_outbox (topic, message_key, created_at) "
+                    + "WHERE published_at IS NULL",
+            // At most one open checkout per order, so concurrent payment page loads share a session
+            "CREATE UNIQUE INDEX IF NOT EXISTS uq_payment_sessions_pending_order ON payment_sessions (order_id) "
+                    + "WHERE status = 'pending'",
+            // Backstop against double booking across instances: one active appointment per doctor slot
+            "CREATE UNIQUE INDEX IF NOT EXISTS uq_appointments_active_slot ON appointments (doctor_id, date, time) "
+                    + "WHERE status NOT IN ('cancelled', 'rejected')"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String sql : STATEMENTS) {
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (DataAccessException e) {
+                // Keep starting: e.g. existing duplicates block the unique index until cleaned up
+                log.warn("Schema migration failed: {} ({})", sql, e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+}
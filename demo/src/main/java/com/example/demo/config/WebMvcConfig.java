@@ -0,0 +1,22 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * MVC async settings. Streamed responses (catalogue export) can run far longer than the
+ * container's 30s async default; SSE emitters set their own timeout and are unaffected.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Value("${web.async.request-timeout-ms:600000}")
+    private long asyncRequestTimeoutMs;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncRequestTimeoutMs);
+    }
+}
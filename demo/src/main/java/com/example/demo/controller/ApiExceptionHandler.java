@@ -0,0 +1,31 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ConflictException;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import java.util.Map;
+
+/**
+ * Errors that mean the same thing wherever they surface. A bounded pool (password
+ * hashing) refusing work is overload, not a client or server error: answer 429 so the
+ * client backs off briefly. A conflict with the current state of the data is 409;
+ * controllers rethrow it from their own catch blocks so it ends up here.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<?> handleRejected(TaskRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", "1")
+                .body(Map.of("message", "Too many requests, please try again shortly"));
+    }
+
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<?> handleConflict(ConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.AppointmentDTO;
+import com.example.demo.dto.SlotHoldDTO;
 import com.example.demo.entity.Appointment;
+import com.example.demo.event.AppointmentTimeline;
 import com.example.demo.service.AppointmentService;
+import com.example.demo.service.AppointmentTimelineService;
+import com.example.demo.service.ConflictException;
+import com.example.demo.service.SlotHoldService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +25,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class AppointmentController {
     private final AppointmentService appointmentService;
+    private final AppointmentTimelineService appointmentTimelineService;
+    private final SlotHoldService slotHoldService;
 
     @GetMapping
     public ResponseEntity<?> getAppointments() {
@@ -50,18 +57,85 @@ public class AppointmentController {
             @RequestParam(required = false) Integer bufferMinutes) {
         try {
             LocalDate appointmentDate = LocalDate.parse(date);
-            Map<String, Object> availability = appointmentService.getAvailability(doctorId, appointmentDate, bufferMinutes);
+            Map<String, Object> availability = appointmentService.getAvailability(
+                    doctorId, appointmentDate, bufferMinutes, currentUserIdOrNull());
             return new ResponseEntity<>(availability, HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.BAD_REQUEST);
         }
     }
 
+    /**
+     * Front desk board for a day, served from the in-memory timeline view
+     */
+    @GetMapping("/board")
+    public ResponseEntity<?> getBoard(
+            @RequestParam String date,
+            @RequestParam(required = false) String doctorId) {
+        try {
+            String userRole = getCurrentUserRole();
+            if (userRole == null) {
+                return new ResponseEntity<>(Map.of("message", "Authentication required"), HttpStatus.UNAUTHORIZED);
+            }
+            if (!"admin".equals(userRole) && !"doctor".equals(userRole)) {
+                return new ResponseEntity<>(Map.of("message", "Access denied"), HttpStatus.FORBIDDEN);
+            }
+            if ("doctor".equals(userRole)) {
+                doctorId = getCurrentUserId();
+            }
+            return new ResponseEntity<>(appointmentTimelineService.getBoard(LocalDate.parse(date), doctorId), HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Hold a slot for a couple of minutes while the caller completes the booking.
+     * The hold always belongs to the authenticated caller; a patientId in the body is ignored.
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<?> createHold(@RequestBody SlotHoldDTO dto) {
+        try {
+            String patientId = currentUserIdOrNull();
+            if (patientId == null) {
+                return new ResponseEntity<>(Map.of("message", "Authentication required"), HttpStatus.UNAUTHORIZED);
+            }
+            if (dto.getDoctorId() == null || dto.getDate() == null || dto.getTime() == null) {
+                throw new RuntimeException("doctorId, date and time are required");
+            }
+            SlotHoldService.Hold hold = slotHoldService.hold(dto.getDoctorId(), dto.getDate(), dto.getTime(), patientId);
+            return new ResponseEntity<>(toHoldDTO(hold), HttpStatus.CREATED);
+        } catch (ConflictException e) {
+            throw e;
+        } catch (Exception e) {
+            return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<?> releaseHold(@PathVariable String holdId) {
+        try {
+            if (getCurrentUserRole() == null) {
+                return new ResponseEntity<>(Map.of("message", "Authentication required"), HttpStatus.UNAUTHORIZED);
+            }
+            SlotHoldService.Hold hold = slotHoldService.getHold(holdId);
+            if ("patient".equals(getCurrentUserRole()) && !getCurrentUserId().equals(hold.patientId())) {
+                return new ResponseEntity<>(Map.of("message", "Access denied"), HttpStatus.FORBIDDEN);
+            }
+            slotHoldService.release(holdId);
+            return new ResponseEntity<>(Map.of("message", "Hold released"), HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.NOT_FOUND);
+        }
+    }
+
     @PostMapping
     public ResponseEntity<?> createAppointment(@RequestBody AppointmentDTO dto) {
         try {
-            Appointment appointment = appointmentService.createAppointment(dto);
+            Appointment appointment = appointmentService.createAppointment(dto, currentUserIdOrNull());
             return new ResponseEntity<>(convertToDTO(appointment), HttpStatus.CREATED);
+        } catch (ConflictException e) {
+            throw e;
         } catch (Exception e) {
             return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.BAD_REQUEST);
         }
@@ -77,11 +151,50 @@ public class AppointmentController {
         }
     }
 
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<?> getTimeline(@PathVariable String id) {
+        try {
+            if (getCurrentUserRole() == null) {
+                return new ResponseEntity<>(Map.of("message", "Authentication required"), HttpStatus.UNAUTHORIZED);
+            }
+            AppointmentTimeline timeline = appointmentTimelineService.getTimeline(id);
+            if (!canView(timeline)) {
+                return new ResponseEntity<>(Map.of("message", "Access denied"), HttpStatus.FORBIDDEN);
+            }
+            return new ResponseEntity<>(timeline, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping("/{id}/status")
+    public ResponseEntity<?> getStatus(@PathVariable String id) {
+        try {
+            if (getCurrentUserRole() == null) {
+                return new ResponseEntity<>(Map.of("message", "Authentication required"), HttpStatus.UNAUTHORIZED);
+            }
+            AppointmentTimeline timeline = appointmentTimelineService.getTimeline(id);
+            if (!canView(timeline)) {
+                return new ResponseEntity<>(Map.of("message", "Access denied"), HttpStatus.FORBIDDEN);
+            }
+            Map<String, Object> status = new HashMap<>();
+            status.put("appointmentId", timeline.getAppointmentId());
+            status.put("status", timeline.getStatus());
+            status.put("version", timeline.getVersion());
+            status.put("updatedAt", timeline.getUpdatedAt());
+            return new ResponseEntity<>(status, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.NOT_FOUND);
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateAppointment(@PathVariable String id, @RequestBody AppointmentDTO dto) {
         try {
             Appointment appointment = appointmentService.updateAppointment(id, dto);
             return new ResponseEntity<>(convertToDTO(appointment), HttpStatus.OK);
+        } catch (ConflictException e) {
+            throw e;
         } catch (Exception e) {
             return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.BAD_REQUEST);
         }
@@ -102,9 +215,31 @@ public class AppointmentController {
         return (String) auth.getPrincipal();
     }
 
+    // Null for anonymous callers: only the JWT filter puts the role in the details
     protected String getCurrentUserRole() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        return (String) auth.getDetails();
+        return auth != null && auth.getDetails() instanceof String role ? role : null;
+    }
+
+    // Availability is public; anonymous callers ("anonymousUser" principal) have no holds of their own
+    private String currentUserIdOrNull() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return getCurrentUserRole() != null && auth.getPrincipal() instanceof String id ? id : null;
+    }
+
+    private SlotHoldDTO toHoldDTO(SlotHoldService.Hold hold) {
+        return new SlotHoldDTO(hold.id(), hold.doctorId(), hold.patientId(), hold.date(), hold.time(), hold.expiresAt());
+    }
+
+    private boolean canView(AppointmentTimeline timeline) {
+        String userRole = getCurrentUserRole();
+        if ("patient".equals(userRole)) {
+            return getCurrentUserId().equals(timeline.getPatientId());
+        }
+        if ("doctor".equals(userRole)) {
+            return getCurrentUserId().equals(timeline.getDoctorId());
+        }
+        return userRole != null;
     }
 
     private AppointmentDTO convertToDTO(Appointment apt) {
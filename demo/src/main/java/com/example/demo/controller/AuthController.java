@@ -6,6 +6,7 @@ import com.example.demo.entity.User;
 import com.example.demo.service.JwtService;
 import com.example.demo.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -38,6 +39,8 @@ public class AuthController {
             response.setUser(convertToDTO(user));
 
             return new ResponseEntity<>(response, HttpStatus.CREATED);
+        } catch (TaskRejectedException e) {
+            throw e; // 429 from ApiExceptionHandler
         } catch (Exception e) {
             AuthResponse response = new AuthResponse();
             response.setMessage(e.getMessage());
@@ -56,6 +59,8 @@ public class AuthController {
             response.setUser(convertToDTO(user));
 
             return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (TaskRejectedException e) {
+            throw e; // 429 from ApiExceptionHandler
         } catch (Exception e) {
             AuthResponse response = new AuthResponse();
             response.setMessage(e.getMessage());
@@ -2,6 +2,7 @@ package com.example.demo.controller;
 
 import com.example.demo.service.UserService;
 import com.example.demo.service.AppointmentService;
+import com.example.demo.service.DoctorDirectoryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -9,9 +10,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import com.example.demo.entity.User;
 import com.example.demo.entity.Appointment;
 import com.example.demo.dto.UserDTO;
@@ -22,13 +21,17 @@ import com.example.demo.dto.UserDTO;
 public class DoctorController {
     private final UserService userService;
     private final AppointmentService appointmentService;
+    private final DoctorDirectoryService doctorDirectoryService;
 
+    /**
+     * Public doctor listing, served from the in-memory directory
+     */
     @GetMapping
-    public ResponseEntity<?> getAllDoctors() {
+    public ResponseEntity<?> getAllDoctors(
+            @RequestParam(required = false) String specialization,
+            @RequestParam(required = false) String name) {
         try {
-            List<User> doctors = userService.getUsersByRole("doctor");
-            return new ResponseEntity<>(doctors.stream()
-                    .map(this::convertToDTO).collect(Collectors.toList()), HttpStatus.OK);
+            return new ResponseEntity<>(doctorDirectoryService.find(specialization, name), HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -0,0 +1,42 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.PaymentSessionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentWebhookController {
+
+    private final PaymentSessionService paymentSessionService;
+
+    // Gateway notification, signed with HMAC-SHA256 of the raw body. Safe to retry:
+    // a session that is already settled answers 200 without changing anything.
+    @PostMapping("/payments/webhook")
+    public ResponseEntity<?> handleWebhook(
+            @RequestBody String body,
+            @RequestHeader(value = "X-Payment-Signature", required = false) String signature) {
+        try {
+            boolean applied = paymentSessionService.handleWebhook(body, signature);
+            return ResponseEntity.ok(Map.of("message", applied ? "Payment updated" : "Already processed"));
+        } catch (Exception e) {
+            if (PaymentSessionService.INVALID_SIGNATURE_MESSAGE.equals(e.getMessage())) {
+                log.warn("Rejected payment webhook with invalid signature");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(Map.of("message", e.getMessage()));
+            }
+            if (PaymentSessionService.SESSION_NOT_FOUND_MESSAGE.equals(e.getMessage())) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("message", e.getMessage()));
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+}
@@ -6,20 +6,32 @@ import com.example.demo.dto.OrderItemDTO;
 import com.example.demo.dto.PaymentDTO;
 import com.example.demo.entity.PharmacyProduct;
 import com.example.demo.entity.Order;
+import com.example.demo.entity.PaymentSession;
 import com.example.demo.entity.User;
 import com.example.demo.service.PharmacyProductService;
+import com.example.demo.service.ConflictException;
 import com.example.demo.service.OrderService;
 import com.example.demo.service.UserService;
 import com.example.demo.service.PaymentService;
+import com.example.demo.service.PaymentSessionService;
+import com.example.demo.service.QRCodeService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -31,6 +43,8 @@ public class PharmacyController {
     private final OrderService orderService;
     private final UserService userService;
     private final PaymentService paymentService;
+    private final QRCodeService qrCodeService;
+    private final PaymentSessionService paymentSessionService;
 
     // -------------------- PRODUCTS --------------------
 
@@ -81,6 +95,61 @@ public class PharmacyController {
         }
     }
 
+    // Bulk import (ADMIN ONLY): raw CSV with a header row, or NDJSON, in the request body.
+    // Format from ?format= or the Content-Type (text/csv, application/x-ndjson).
+    @PostMapping("/products/import")
+    public ResponseEntity<?> importProducts(
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = "Content-Type", required = false) String contentType,
+            InputStream body) {
+        try {
+            if (!isAdmin()) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("message", "Admin access required"));
+            }
+
+            PharmacyProductService.ImportResult result = productService.importProducts(body, catalogFormat(format, contentType));
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Bulk export (ADMIN ONLY), streamed from a database cursor: ?format=csv (default) or ndjson
+    @GetMapping("/products/export")
+    public ResponseEntity<?> exportProducts(@RequestParam(required = false) String format) {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("message", "Admin access required"));
+        }
+        String catalogFormat = catalogFormat(format, null);
+        boolean ndjson = PharmacyProductService.FORMAT_NDJSON.equals(catalogFormat);
+        StreamingResponseBody stream = out -> productService.exportProducts(out, catalogFormat);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ndjson ? "application/x-ndjson" : "text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + catalogFormat + "\"")
+                .body(stream);
+    }
+
+    // Bulk partial update (ADMIN ONLY), e.g. a price sync: [{"id": "...", "price": 4.5}, ...]
+    @PatchMapping("/products")
+    public ResponseEntity<?> patchProducts(@RequestBody List<PharmacyProductDTO> patches) {
+        try {
+            if (!isAdmin()) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("message", "Admin access required"));
+            }
+
+            return ResponseEntity.ok(productService.patchProducts(patches));
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
     // Update product (ADMIN ONLY)
     @PutMapping("/products/{id}")
     public ResponseEntity<?> updateProduct(
@@ -112,6 +181,8 @@ public class PharmacyController {
             Order order = orderService.createOrder(dto);
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(convertOrderToDTO(order));
+        } catch (ConflictException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", e.getMessage()));
@@ -162,9 +233,10 @@ public class PharmacyController {
         }
     }
 
-    // Get payment info with QR code for an order
+    // Get payment info with QR code for an order; ?methods=upi,stripe limits the methods returned
     @GetMapping("/orders/{id}/payment")
-    public ResponseEntity<?> getPaymentInfo(@PathVariable String id) {
+    public ResponseEntity<?> getPaymentInfo(@PathVariable String id,
+                                            @RequestParam(required = false) String methods) {
         try {
             Order order = orderService.getOrderById(id);
             String role = getCurrentUserRole();
@@ -175,8 +247,16 @@ public class PharmacyController {
                         .body(Map.of("message", "Access denied"));
             }
 
-            // Generate payment info with QR code
-            PaymentDTO paymentInfo = paymentService.generatePaymentInfo(order);
+            // Generate payment info with QR code, tied to the order's open payment session
+            PaymentDTO paymentInfo = paymentService.generatePaymentInfo(order, parseMethods(methods));
+            PaymentSession session = paymentSessionService.openSession(order);
+            if (session != null) {
+                paymentInfo.setSessionId(session.getId());
+                paymentInfo.setCreatedAt(session.getCreatedAt());
+                paymentInfo.setExpiresAt(session.getExpiresAt());
+            } else {
+                paymentInfo.setStatus(order.getPaymentStatus());
+            }
             return ResponseEntity.ok(paymentInfo);
 
         } catch (Exception e) {
@@ -185,7 +265,54 @@ public class PharmacyController {
         }
     }
 
-    // Confirm payment - user marks order as payment completed
+    // QR image for one payment method, e.g. /orders/{id}/payment/qr/upi.svg, served as raw bytes.
+    // The ETag is derived from the payload, so unchanged codes revalidate with 304 and no encoding.
+    @GetMapping("/orders/{id}/payment/qr/{method}.{format}")
+    public ResponseEntity<?> getPaymentQr(@PathVariable String id,
+                                          @PathVariable String method,
+                                          @PathVariable String format,
+                                          @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        try {
+            QRCodeService.QrFormat qrFormat;
+            MediaType contentType;
+            if ("png".equalsIgnoreCase(format)) {
+                qrFormat = QRCodeService.QrFormat.PNG;
+                contentType = MediaType.IMAGE_PNG;
+            } else if ("svg".equalsIgnoreCase(format)) {
+                qrFormat = QRCodeService.QrFormat.SVG;
+                contentType = MediaType.valueOf("image/svg+xml");
+            } else {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("message", "Unsupported format: " + format));
+            }
+
+            Order order = orderService.getOrderById(id);
+            if (!"admin".equals(getCurrentUserRole()) && !order.getUserId().equals(getCurrentUserId())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("message", "Access denied"));
+            }
+
+            String payload = paymentService.qrPayload(order, method.toLowerCase(Locale.ROOT));
+            String etag = qrCodeService.etag(payload, qrFormat);
+            CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+            }
+
+            byte[] image = qrCodeService.generate(payload, qrFormat);
+            return ResponseEntity.ok()
+                    .contentType(contentType)
+                    .contentLength(image.length)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .body(image);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Confirm payment - user returns from paying; the gateway, not the client, decides the outcome
     @PostMapping("/orders/{id}/payment/confirm")
     public ResponseEntity<?> confirmPayment(@PathVariable String id) {
         try {
@@ -198,13 +325,12 @@ public class PharmacyController {
                         .body(Map.of("message", "Access denied"));
             }
 
-            // Update payment status to completed and order status to processing
-            order.setPaymentStatus("completed");
-            order.setStatus("processing");
-            
-            // Save the updated order
-            Order updated = orderService.updateOrderStatus(id, "processing");
-            
+            // Check the open payment session now instead of waiting for the webhook or reconciliation
+            paymentSessionService.reconcileOrder(id);
+            Order updated = orderService.getOrderById(id);
+            if (!"completed".equals(updated.getPaymentStatus())) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(convertOrderToDTO(updated));
+            }
             return ResponseEntity.ok(convertOrderToDTO(updated));
 
         } catch (Exception e) {
@@ -225,15 +351,26 @@ public class PharmacyController {
                         .body(Map.of("message", "Admin access required"));
             }
 
-            Order order = orderService.updateOrderStatus(id, request.get("status"));
+            // expectedStatus (optional): only apply if the order is still in the status the admin saw
+            Order order = orderService.updateOrderStatus(id, request.get("status"), request.get("expectedStatus"));
             return ResponseEntity.ok(convertOrderToDTO(order));
 
+        } catch (ConflictException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("message", e.getMessage()));
+                    .body(Map.of("message", e.getMessage() != null ? e.getMessage() : ""));
         }
     }
 
+    private static String catalogFormat(String format, String contentType) {
+        String value = format != null ? format : contentType;
+        if (value != null && value.toLowerCase(Locale.ROOT).contains("json")) {
+            return PharmacyProductService.FORMAT_NDJSON;
+        }
+        return PharmacyProductService.FORMAT_CSV;
+    }
+
     // -------------------- SECURITY HELPERS --------------------
 
     protected String getCurrentUserId() {
@@ -256,6 +393,17 @@ public class PharmacyController {
         return "admin".equals(role);
     }
 
+    // "upi, Stripe" -> {upi, stripe}; null when the client did not filter
+    private static Set<String> parseMethods(String methods) {
+        if (methods == null || methods.isBlank()) {
+            return null;
+        }
+        return Arrays.stream(methods.split(","))
+                .map(m -> m.trim().toLowerCase(Locale.ROOT))
+                .filter(m -> !m.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
     // -------------------- DTO MAPPERS --------------------
 
     private PharmacyProductDTO convertProductToDTO(PharmacyProduct product) {
@@ -266,6 +414,7 @@ public class PharmacyController {
         dto.setPrice(product.getPrice());
         dto.setCategory(product.getCategory());
         dto.setInStock(product.getInStock());
+        dto.setStockQuantity(product.getStockQuantity());
         dto.setImageUrl(product.getImageUrl());
         dto.setPrescriptionRequired(product.getPrescriptionRequired());
         return dto;
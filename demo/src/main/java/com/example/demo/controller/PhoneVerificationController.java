@@ -72,9 +72,6 @@ public class PhoneVerificationController {
             return new ResponseEntity<>(Map.of("message", "OTP sent"), HttpStatus.OK);
         } catch (Exception e) {
             log.error("❌ ERROR in sendOTP: {}", e.getMessage(), e);
-            if ("OTP recently sent".contains(e.getMessage())) {
-                return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.TOO_MANY_REQUESTS);
-            }
             return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
@@ -1,17 +1,27 @@
 package com.example.demo.controller;
 
+import com.example.demo.service.ConflictException;
+import com.example.demo.service.ConversationAssignmentEngine;
 import com.example.demo.service.ConversationService;
 import com.example.demo.service.TwilioService;
+import com.example.demo.dto.ConversationSummary;
 import com.example.demo.entity.Conversation;
 import com.example.demo.entity.Message;
 import com.example.demo.repository.ConversationRepository;
-import com.example.demo.repository.MessageRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -19,11 +29,14 @@ import java.util.Optional;
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
+@Slf4j
 public class TwilioWebhookController {
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final ConversationService conversationService;
+    private final ConversationAssignmentEngine assignmentEngine;
     private final TwilioService twilioService;
     private final ConversationRepository conversationRepository;
-    private final MessageRepository messageRepository;
 
     @PostMapping("/twilio/inbound")
     public ResponseEntity<?> handleInboundSMS(
@@ -31,30 +44,22 @@ public class TwilioWebhookController {
             @RequestParam String To,
             @RequestParam String Body) {
         try {
-            System.out.println("[Twilio inbound] From=" + From + " To=" + To + " Body=" + Body);
-
             // Normalize phone
             String fromE164 = twilioService.normalizePhoneE164(From);
             if (fromE164 == null) {
                 fromE164 = From;
             }
 
-            // Find or create conversation
-            Optional<Conversation> existingConvo = conversationService.findByCustomerPhone(fromE164);
-            Conversation conversation;
-
-            if (existingConvo.isPresent()) {
-                conversation = existingConvo.get();
-            } else {
-                conversation = conversationService.createConversation(null, null, fromE164);
-            }
+            // Find or create conversation (cached per phone)
+            String conversationId = conversationService.resolveConversationId(fromE164);
 
-            // Add message
-            conversationService.addMessage(conversation.getId(), "twilio", "inbound", Body, From, To);
+            // Acknowledge Twilio now; the message is inserted with the next batch
+            conversationService.appendMessage(conversationId, "twilio", "inbound", Body, From, To);
+            assignmentEngine.onInboundMessage(conversationId);
 
             return new ResponseEntity<>(HttpStatus.OK);
         } catch (Exception e) {
-            System.err.println("Twilio inbound error: " + e.getMessage());
+            log.error("Twilio inbound error: {}", e.getMessage(), e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
@@ -111,60 +116,124 @@ public class TwilioWebhookController {
     }
 
     @GetMapping("/conversations")
-    public ResponseEntity<?> getConversations() {
+    public ResponseEntity<?> getConversations(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         try {
             String userId = getCurrentUserId();
             String userRole = getCurrentUserRole();
 
-            List<Conversation> conversations = conversationService.getConversationsByUser(userId, userRole);
-            return new ResponseEntity<>(conversations, HttpStatus.OK);
+            Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+            Page<ConversationSummary> inbox = conversationService.getConversationsByUser(userId, userRole, pageable);
+            return ResponseEntity.ok()
+                    .header("X-Total-Count", String.valueOf(inbox.getTotalElements()))
+                    .body(inbox.getContent());
         } catch (Exception e) {
             return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
     @PostMapping("/conversations/{id}/assign")
-    public ResponseEntity<?> assignConversation(@PathVariable String id, @RequestBody Map<String, String> request) {
+    public ResponseEntity<?> assignConversation(@PathVariable String id, @RequestBody Map<String, Object> request) {
         try {
             String userRole = getCurrentUserRole();
             if (!"admin".equals(userRole) && !"agent".equals(userRole)) {
                 return new ResponseEntity<>(Map.of("message", "Unauthorized"), HttpStatus.FORBIDDEN);
             }
 
-            String agentId = request.get("agentId");
-            if (agentId == null || agentId.isEmpty()) {
-                agentId = getCurrentUserId();
-            }
+            String userId = getCurrentUserId();
+            Object requestedAgent = request.get("agentId");
+            String agentId = requestedAgent != null && !requestedAgent.toString().isEmpty() ? requestedAgent.toString() : userId;
 
-            Conversation conversation = conversationService.assignAgent(id, agentId);
+            Conversation conversation;
+            if ("admin".equals(userRole)) {
+                Object version = request.get("version");
+                conversation = conversationService.assignAgent(id, agentId,
+                        version != null ? Long.valueOf(version.toString()) : null);
+            } else if (agentId.equals(userId)) {
+                conversation = conversationService.claimConversation(id, agentId);
+            } else {
+                return new ResponseEntity<>(Map.of("message", "Agents can only claim conversations for themselves"), HttpStatus.FORBIDDEN);
+            }
             return new ResponseEntity<>(conversation, HttpStatus.OK);
+        } catch (ConflictException e) {
+            throw e;
         } catch (Exception e) {
             return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.BAD_REQUEST);
         }
     }
 
-    @GetMapping("/conversations/{id}/messages")
-    public ResponseEntity<?> getConversationMessages(@PathVariable String id) {
+    @PostMapping("/conversations/{id}/close")
+    public ResponseEntity<?> closeConversation(@PathVariable String id) {
         try {
-            String userId = getCurrentUserId();
             String userRole = getCurrentUserRole();
+            if (!"admin".equals(userRole) && !"agent".equals(userRole)) {
+                return new ResponseEntity<>(Map.of("message", "Unauthorized"), HttpStatus.FORBIDDEN);
+            }
 
-            // Verify access
-            Conversation conversation = conversationRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Conversation not found"));
+            return new ResponseEntity<>(conversationService.closeConversation(id), HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
 
-            if (!"admin".equals(userRole) && !"agent".equals(userRole) && 
-                !conversation.getUserId().equals(userId)) {
+    @GetMapping("/conversations/{id}/messages")
+    public ResponseEntity<?> getConversationMessages(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        try {
+            // Verify access
+            if (!canAccessConversation(id)) {
                 return new ResponseEntity<>(Map.of("message", "Unauthorized"), HttpStatus.FORBIDDEN);
             }
 
-            List<Message> messages = messageRepository.findByConversationIdOrderByCreatedAtAsc(id);
+            // With ?since= only the messages after the client's latest one are returned
+            List<Message> messages = conversationService.getConversationMessages(id, since);
+            String userRole = getCurrentUserRole();
+            if ("admin".equals(userRole) || "agent".equals(userRole)) {
+                conversationService.markReadByAgent(id);
+            }
             return new ResponseEntity<>(messages, HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * Server-sent events for new messages in the conversation (event "message", id = message id).
+     * Reconnecting clients send Last-Event-ID, or ?since=, to receive the messages they missed.
+     */
+    @GetMapping(value = "/conversations/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamConversation(
+            @PathVariable String id,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        try {
+            if (!canAccessConversation(id)) {
+                return new ResponseEntity<>(Map.of("message", "Unauthorized"), HttpStatus.FORBIDDEN);
+            }
+
+            SseEmitter emitter = conversationService.streamMessages(id, lastEventId, since);
+            // Tell nginx not to buffer the stream
+            return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+        } catch (Exception e) {
+            return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    private boolean canAccessConversation(String conversationId) {
+        String userRole = getCurrentUserRole();
+        if ("admin".equals(userRole) || "agent".equals(userRole)) {
+            if (!conversationRepository.existsById(conversationId)) {
+                throw new RuntimeException("Conversation not found");
+            }
+            return true;
+        }
+        Conversation conversation = conversationRepository.findById(conversationId)
+                .orElseThrow(() -> new RuntimeException("Conversation not found"));
+        return getCurrentUserId().equals(conversation.getUserId());
+    }
+
     @PostMapping("/conversations/{id}/reply")
     public ResponseEntity<?> replyConversation(@PathVariable String id, @RequestBody Map<String, String> request) {
         try {
@@ -193,6 +262,7 @@ public class TwilioWebhookController {
 
             conversationService.addMessage(id, "agent", "outbound", body, 
                     System.getenv("TWILIO_PHONE_NUMBER"), toPhone);
+            assignmentEngine.onTouched(id);
 
             return new ResponseEntity<>(Map.of("message", "Sent"), HttpStatus.OK);
         } catch (Exception e) {
@@ -208,12 +278,35 @@ public class TwilioWebhookController {
                 return new ResponseEntity<>(Map.of("message", "Unauthorized"), HttpStatus.FORBIDDEN);
             }
 
-            return new ResponseEntity<>(Map.of("message", "Not implemented"), HttpStatus.OK);
+            return new ResponseEntity<>(conversationService.listAgents(), HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Agent presence: send {"online": true} every ~30s while the desk is open, false when leaving
+     */
+    @PostMapping("/agents/presence")
+    public ResponseEntity<?> updatePresence(@RequestBody Map<String, Object> request) {
+        try {
+            if (!"agent".equals(getCurrentUserRole())) {
+                return new ResponseEntity<>(Map.of("message", "Unauthorized"), HttpStatus.FORBIDDEN);
+            }
+
+            String agentId = getCurrentUserId();
+            boolean online = !Boolean.FALSE.equals(request.get("online"));
+            if (online) {
+                assignmentEngine.heartbeat(agentId);
+            } else {
+                assignmentEngine.goOffline(agentId);
+            }
+            return new ResponseEntity<>(Map.of("online", online), HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     protected String getCurrentUserId() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         return (String) auth.getPrincipal();
@@ -1,7 +1,9 @@
 package com.example.demo.dto;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.*;
 import java.time.LocalDate;
+import java.time.LocalTime;
 
 @Getter
 @Setter
@@ -12,7 +14,8 @@ public class AppointmentDTO {
     private String patientId;
     private String doctorId;
     private LocalDate date;
-    private String time;
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime time;
     private String patientName;
     private String doctorName;
     private String status;
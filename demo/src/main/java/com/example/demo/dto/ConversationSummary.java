@@ -0,0 +1,29 @@
+package com.example.demo.dto;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Inbox row: conversation fields plus the latest message preview and the number of
+ * inbound messages the agents have not read yet
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummary {
+    private String id;
+    private String userId;
+    private String agentId;
+    private String status;
+    private String source;
+    private String subject;
+    private String customerPhone;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime lastMessageAt;
+    private String lastMessagePreview;
+    private String lastMessageDirection;
+    private long unreadCount;
+    private long version;
+}
@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import lombok.*;
+
+/**
+ * Public doctor listing entry. Built by a JPQL constructor projection, so the
+ * directory never loads password hashes, OTP state or contact details.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorDirectoryEntry {
+    private String id;
+    private String name;
+    private String specialization;
+    private String imageUrl;
+}
@@ -1,6 +1,7 @@
 package com.example.demo.dto;
 
 import lombok.*;
+import java.time.LocalDateTime;
 
 @Getter
 @Setter
@@ -14,4 +15,5 @@ public class MessageDTO {
     private String body;
     private String fromNumber;
     private String toNumber;
+    private LocalDateTime createdAt;
 }
@@ -14,6 +14,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class PaymentDTO {
     private String orderId;
+    private String sessionId;
     private Double amount;
     private String currency = "INR";
     private String status = "pending"; // pending, completed, failed
@@ -13,6 +13,7 @@ public class PharmacyProductDTO {
     private Float price;
     private String category;
     private Boolean inStock;
+    private Integer stockQuantity;
     private String imageUrl;
     private Boolean prescriptionRequired;
 }
@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotHoldDTO {
+    private String id;
+    private String doctorId;
+    private String patientId;
+    private LocalDate date;
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime time;
+    private LocalDateTime expiresAt;
+}
@@ -4,9 +4,12 @@ import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+        @Index(name = "idx_appointments_doctor_date_time", columnList = "doctorId, date, time")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -33,7 +36,7 @@ public class Appointment {
     private LocalDate date;
 
     @Column(nullable = false)
-    private String time;
+    private LocalTime time;
 
     private String status = "scheduled"; // scheduled, completed, cancelled, waiting, in_room
 
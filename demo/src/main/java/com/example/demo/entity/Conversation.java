@@ -5,7 +5,11 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations", indexes = {
+        @Index(name = "idx_conversations_customer_phone", columnList = "customerPhone, createdAt"),
+        @Index(name = "idx_conversations_agent_last_message", columnList = "agentId, lastMessageAt"),
+        @Index(name = "idx_conversations_last_message", columnList = "lastMessageAt")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -34,6 +38,19 @@ public class Conversation {
 
     private String customerPhone;
 
+    // Maintained by MessageBatchWriter, orders the inbox without scanning messages
+    private LocalDateTime lastMessageAt;
+
+    // Inbound messages after this are unread for the agents
+    private LocalDateTime agentLastReadAt;
+
+    // Assigned automatically and not answered or claimed yet: only then may the engine move it
+    private Boolean unanswered = false;
+
+    // Optimistic lock: assignment changes go through conditional updates that bump it
+    @Version
+    private Long version = 0L;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
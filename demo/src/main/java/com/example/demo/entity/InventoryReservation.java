@@ -0,0 +1,50 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Units of a product held for an order. Stock is taken when the order is placed;
+ * the hold becomes permanent once the order is paid and is given back if the order
+ * is cancelled or not paid before it expires.
+ */
+@Entity
+@Table(name = "inventory_reservations", indexes = {
+        @Index(name = "idx_inventory_reservations_order", columnList = "orderId"),
+        @Index(name = "idx_inventory_reservations_expiry", columnList = "status, expiresAt")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryReservation {
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String orderId;
+
+    @Column(nullable = false)
+    private String productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    private String status = "held"; // held, committed, released
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime settledAt;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -5,7 +5,9 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        @Index(name = "idx_messages_conversation_created", columnList = "conversationId, createdAt")
+})
 @Getter
 @Setter
 @NoArgsConstructor
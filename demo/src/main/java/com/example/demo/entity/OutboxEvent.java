@@ -0,0 +1,53 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Domain event waiting to be relayed to Kafka. Written in the same transaction
+ * as the entity change that produced it.
+ */
+@Entity
+@Table(name = "event_outbox", indexes = {
+        @Index(name = "idx_event_outbox_pending", columnList = "publishedAt, createdAt")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    private String messageKey;
+
+    @Column(nullable = false)
+    private String eventType; // fully qualified event class
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    private LocalDateTime nextAttemptAt; // null: due now; set with backoff after a failed send
+
+    private LocalDateTime publishedAt;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * One checkout attempt for an order. Created when the payment page is opened and
+ * settled by the gateway webhook or, failing that, by the reconciliation job.
+ */
+@Entity
+@Table(name = "payment_sessions", indexes = {
+        @Index(name = "idx_payment_sessions_order", columnList = "orderId"),
+        @Index(name = "idx_payment_sessions_due", columnList = "status, nextCheckAt")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentSession {
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String orderId;
+
+    @Column(nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private Double amount;
+
+    @Column(nullable = false)
+    private String currency = "INR";
+
+    private String status = "pending"; // pending, completed, failed, expired, paid_after_expiry
+
+    // Payment id assigned by the gateway, once known
+    private String gatewayReference;
+
+    @Column(nullable = false)
+    private Integer checkAttempts = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime nextCheckAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime settledAt;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.example.demo.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDateTime;
 
 @Entity
+@DynamicUpdate
 @Table(name = "pharmacy_products")
 @Getter
 @Setter
@@ -27,6 +29,11 @@ public class PharmacyProduct {
 
     private Boolean inStock = true;
 
+    // Units available to order; null means stock is not tracked and inStock is set by hand.
+    // Only changed by conditional SQL (reservations, restock), never by entity saves.
+    @Column(updatable = false)
+    private Integer stockQuantity;
+
     private String imageUrl;
 
     private Boolean prescriptionRequired = false;
@@ -52,6 +52,9 @@ public class User {
 
     private String license;
 
+    // Agent presence heartbeat, drives automatic conversation assignment
+    private LocalDateTime lastSeenAt;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
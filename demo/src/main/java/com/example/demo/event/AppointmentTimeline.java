@@ -0,0 +1,75 @@
+package com.example.demo.event;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Latest state of an appointment plus its status history, folded from appointment
+ * events. Published to the compacted appointments-state topic keyed by appointment id.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class AppointmentTimeline implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @JsonProperty("appointment_id")
+    private String appointmentId;
+
+    @JsonProperty("patient_id")
+    private String patientId;
+
+    @JsonProperty("doctor_id")
+    private String doctorId;
+
+    @JsonProperty("date")
+    private LocalDate date;
+
+    @JsonProperty("time")
+    private String time;
+
+    @JsonProperty("status")
+    private String status;
+
+    @JsonProperty("visit_type")
+    private String visitType;
+
+    @JsonProperty("version")
+    private long version; // source event offset, used to discard stale snapshots
+
+    @JsonProperty("updated_at")
+    private LocalDateTime updatedAt;
+
+    @JsonProperty("entries")
+    private List<Entry> entries;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @JsonProperty("action")
+        private String action;
+
+        @JsonProperty("status")
+        private String status;
+
+        @JsonProperty("at")
+        private LocalDateTime at;
+
+        @JsonProperty("rejection_reason")
+        private String rejectionReason;
+    }
+}
@@ -22,7 +22,7 @@ public class AppointmentConsumer {
     @KafkaListener(
             topics = "${kafka.topic.appointment:appointments}",
             groupId = "appointment-consumer-group",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = "appointmentKafkaListenerContainerFactory"
     )
     public void consumeAppointmentEvent(AppointmentEvent event) {
         try {
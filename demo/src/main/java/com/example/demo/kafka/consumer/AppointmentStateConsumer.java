@@ -0,0 +1,68 @@
+package com.example.demo.kafka.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.event.AppointmentEvent;
+import com.example.demo.event.AppointmentTimeline;
+import com.example.demo.kafka.producer.EventPublisher;
+import com.example.demo.service.AppointmentTimelineService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains the appointment timeline view.
+ *
+ * The builder side consumes appointment events (one owner per partition across the
+ * cluster), folds each into the next snapshot and publishes it to the compacted state
+ * topic. The view side runs on every instance, reading the whole state topic from
+ * offset 0 on startup and then following it.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AppointmentStateConsumer {
+    private final AppointmentTimelineService timelineService;
+    private final EventPublisher eventPublisher;
+
+    @Value("${kafka.topic.appointment-state:appointments-state}")
+    private String appointmentStateTopic;
+
+    @KafkaListener(
+            topics = "${kafka.topic.appointment:appointments}",
+            groupId = "appointment-state-builder",
+            containerFactory = "appointmentKafkaListenerContainerFactory"
+    )
+    public void buildState(ConsumerRecord<String, AppointmentEvent> record) {
+        AppointmentEvent event = record.value();
+        if (event == null || event.getAppointmentId() == null) {
+            return;
+        }
+        // Events for one appointment share a partition, so the offset orders its snapshots
+        AppointmentTimeline snapshot = timelineService.fold(event, record.timestamp(), record.offset());
+        // Publish before acknowledging the event so a failed send is redelivered, not lost
+        eventPublisher.publishSync(appointmentStateTopic, event.getAppointmentId(), snapshot);
+        // Apply locally too, so a follow-up event does not fold onto a snapshot still in flight
+        timelineService.apply(event.getAppointmentId(), snapshot);
+        log.debug("Appointment {} timeline at version {}", event.getAppointmentId(), snapshot.getVersion());
+    }
+
+    @KafkaListener(
+            id = "appointmentStateView",
+            groupId = "appointment-state-view",
+            // Manual assignment of all partitions, from the same count KafkaConfig creates the topic with
+            topicPartitions = @TopicPartition(
+                    topic = "${kafka.topic.appointment-state:appointments-state}",
+                    partitions = "0-#{${kafka.topic.appointment-state-partitions:3} - 1}",
+                    partitionOffsets = @PartitionOffset(partition = "*", initialOffset = "0")),
+            containerFactory = "appointmentStateKafkaListenerContainerFactory"
+    )
+    public void consumeState(ConsumerRecord<String, AppointmentTimeline> record) {
+        timelineService.apply(record.key(), record.value());
+    }
+}
@@ -18,7 +18,7 @@ public class HealthRecordConsumer {
     @KafkaListener(
             topics = "${kafka.topic.health-record:health-records}",
             groupId = "health-record-consumer-group",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = "healthRecordKafkaListenerContainerFactory"
     )
     public void consumeHealthRecordEvent(HealthRecordEvent event) {
         try {
@@ -22,7 +22,7 @@ public class OrderConsumer {
     @KafkaListener(
             topics = "${kafka.topic.order:orders}",
             groupId = "order-consumer-group",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = "orderKafkaListenerContainerFactory"
     )
     public void consumeOrderEvent(OrderEvent event) {
         try {
@@ -77,7 +77,7 @@ public class OrderConsumer {
         }
         
         // Example: Initiate payment processing
-        // Example: Create inventory reservations
+        // Inventory is already reserved by OrderService.createOrder (see InventoryService)
         // Example: Notify pharmacy/supplier
     }
 
@@ -18,7 +18,7 @@ public class PrescriptionConsumer {
     @KafkaListener(
             topics = "${kafka.topic.prescription:prescriptions}",
             groupId = "prescription-consumer-group",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = "prescriptionKafkaListenerContainerFactory"
     )
     public void consumePrescriptionEvent(PrescriptionEvent event) {
         try {
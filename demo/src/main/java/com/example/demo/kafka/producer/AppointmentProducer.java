@@ -1,13 +1,13 @@
 package com.example.demo.kafka.producer;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import com.example.demo.event.AppointmentEvent;
+import com.example.demo.service.OutboxService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,29 +17,33 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class AppointmentProducer {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final EventPublisher eventPublisher;
+    private final OutboxService outboxService;
 
     @Value("${kafka.topic.appointment:appointments}")
     private String appointmentTopic;
 
     /**
-     * Publish an appointment event to the Kafka topic
+     * Publish an appointment event to the Kafka topic without blocking the caller
      * @param event the appointment event to publish
+     * @return future completed once the broker acknowledges the event
      */
-    public void publishAppointmentEvent(AppointmentEvent event) {
+    public CompletableFuture<SendResult<String, Object>> publishAppointmentEvent(AppointmentEvent event) {
         try {
             log.info("Publishing appointment event: {}", event.getAppointmentId());
-            
-            Message<AppointmentEvent> message = MessageBuilder
-                    .withPayload(event)
-                    .setHeader(KafkaHeaders.TOPIC, appointmentTopic)
-                    .build();
-
-            kafkaTemplate.send(message);
-            log.info("Successfully published appointment event: {}", event.getAppointmentId());
+            return eventPublisher.publish(appointmentTopic, event.getAppointmentId(), event);
         } catch (Exception e) {
             log.error("Error publishing appointment event: {}", event.getAppointmentId(), e);
             throw new RuntimeException("Failed to publish appointment event", e);
         }
     }
+
+    /**
+     * Stage an appointment event in the outbox as part of the caller's transaction.
+     * The outbox relay publishes it after commit.
+     * @param event the appointment event to publish
+     */
+    public void enqueueAppointmentEvent(AppointmentEvent event) {
+        outboxService.enqueue(appointmentTopic, event.getAppointmentId(), event);
+    }
 }
@@ -0,0 +1,132 @@
+package com.example.demo.kafka.producer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Single entry point for sending events to Kafka.
+ *
+ * Sends are asynchronous: callers get the {@link CompletableFuture} from the template
+ * and the request thread returns immediately. Every send is timed into the
+ * {@code kafka.publish.latency} histogram and failures are counted in
+ * {@code kafka.publish.failures}, so broker-side errors (acks=all, retries exhausted)
+ * are no longer silent. Topics listed in {@code kafka.producer.sync-topics} are treated
+ * as critical and wait for the broker acknowledgement before returning.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EventPublisher {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${kafka.producer.sync-topics:}")
+    private List<String> syncTopics = List.of();
+
+    @Value("${kafka.producer.sync-timeout-ms:5000}")
+    private long syncTimeoutMs = 5000;
+
+    /**
+     * Publish an event, waiting for the acknowledgement only when the topic is
+     * configured as synchronous.
+     * @param topic the destination topic
+     * @param key the record key (used for partitioning), may be null
+     * @param event the event payload
+     * @return a future completed with the send result once the broker acknowledges it
+     */
+    public CompletableFuture<SendResult<String, Object>> publish(String topic, String key, Object event) {
+        if (syncTopics.contains(topic)) {
+            try {
+                return CompletableFuture.completedFuture(publishSync(topic, key, event));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return send(topic, key, event);
+    }
+
+    /**
+     * Publish an event and block until the broker acknowledges it.
+     * Intended for critical events where the caller must know the outcome.
+     */
+    public SendResult<String, Object> publishSync(String topic, String key, Object event) {
+        try {
+            return send(topic, key, event).get(syncTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while publishing to " + topic, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to publish to " + topic, e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Timed out after " + syncTimeoutMs + "ms publishing to " + topic, e);
+        }
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(String topic, String key, Object event) {
+        Message<Object> message = MessageBuilder
+                .withPayload(event)
+                .setHeader(KafkaHeaders.TOPIC, topic)
+                .setHeader(KafkaHeaders.KEY, key)
+                .build();
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<SendResult<String, Object>> future;
+        try {
+            future = kafkaTemplate.send(message);
+        } catch (RuntimeException e) {
+            // Serialization errors or max.block.ms expiring while fetching metadata
+            recordFailure(topic, key, sample, e);
+            throw e;
+        }
+
+        return future.whenComplete((result, ex) -> {
+            if (ex != null) {
+                recordFailure(topic, key, sample, ex);
+            } else {
+                sample.stop(latencyTimer(topic, "success"));
+                if (log.isDebugEnabled() && result != null) {
+                    log.debug("Published {} to {}-{}@{}", key, topic,
+                            result.getRecordMetadata().partition(), result.getRecordMetadata().offset());
+                }
+            }
+        });
+    }
+
+    private void recordFailure(String topic, String key, Timer.Sample sample, Throwable ex) {
+        sample.stop(latencyTimer(topic, "failure"));
+        Counter.builder("kafka.publish.failures")
+                .description("Events that could not be delivered to Kafka")
+                .tag("topic", topic)
+                .tag("exception", ex.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+        log.error("Failed to publish event {} to topic {}", key, topic, ex);
+    }
+
+    private Timer latencyTimer(String topic, String outcome) {
+        return Timer.builder("kafka.publish.latency")
+                .description("Time from send() until the broker acknowledged the record")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
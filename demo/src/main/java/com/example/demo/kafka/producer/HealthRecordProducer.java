@@ -1,13 +1,13 @@
 package com.example.demo.kafka.producer;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import com.example.demo.event.HealthRecordEvent;
+import com.example.demo.service.OutboxService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,29 +17,33 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class HealthRecordProducer {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final EventPublisher eventPublisher;
+    private final OutboxService outboxService;
 
     @Value("${kafka.topic.health-record:health-records}")
     private String healthRecordTopic;
 
     /**
-     * Publish a health record event to the Kafka topic
+     * Publish a health record event to the Kafka topic without blocking the caller
      * @param event the health record event to publish
+     * @return future completed once the broker acknowledges the event
      */
-    public void publishHealthRecordEvent(HealthRecordEvent event) {
+    public CompletableFuture<SendResult<String, Object>> publishHealthRecordEvent(HealthRecordEvent event) {
         try {
             log.info("Publishing health record event: {}", event.getRecordId());
-            
-            Message<HealthRecordEvent> message = MessageBuilder
-                    .withPayload(event)
-                    .setHeader(KafkaHeaders.TOPIC, healthRecordTopic)
-                    .build();
-
-            kafkaTemplate.send(message);
-            log.info("Successfully published health record event: {}", event.getRecordId());
+            return eventPublisher.publish(healthRecordTopic, event.getRecordId(), event);
         } catch (Exception e) {
             log.error("Error publishing health record event: {}", event.getRecordId(), e);
             throw new RuntimeException("Failed to publish health record event", e);
         }
     }
+
+    /**
+     * Stage a health record event in the outbox as part of the caller's transaction.
+     * The outbox relay publishes it after commit.
+     * @param event the health record event to publish
+     */
+    public void enqueueHealthRecordEvent(HealthRecordEvent event) {
+        outboxService.enqueue(healthRecordTopic, event.getRecordId(), event);
+    }
 }
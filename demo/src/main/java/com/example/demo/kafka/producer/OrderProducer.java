@@ -1,13 +1,13 @@
 package com.example.demo.kafka.producer;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import com.example.demo.event.OrderEvent;
+import com.example.demo.service.OutboxService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,29 +17,33 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class OrderProducer {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final EventPublisher eventPublisher;
+    private final OutboxService outboxService;
 
     @Value("${kafka.topic.order:orders}")
     private String orderTopic;
 
     /**
-     * Publish an order event to the Kafka topic
+     * Publish an order event to the Kafka topic without blocking the caller
      * @param event the order event to publish
+     * @return future completed once the broker acknowledges the event
      */
-    public void publishOrderEvent(OrderEvent event) {
+    public CompletableFuture<SendResult<String, Object>> publishOrderEvent(OrderEvent event) {
         try {
             log.info("Publishing order event: {}", event.getOrderId());
-            
-            Message<OrderEvent> message = MessageBuilder
-                    .withPayload(event)
-                    .setHeader(KafkaHeaders.TOPIC, orderTopic)
-                    .build();
-
-            kafkaTemplate.send(message);
-            log.info("Successfully published order event: {}", event.getOrderId());
+            return eventPublisher.publish(orderTopic, event.getOrderId(), event);
         } catch (Exception e) {
             log.error("Error publishing order event: {}", event.getOrderId(), e);
             throw new RuntimeException("Failed to publish order event", e);
         }
     }
+
+    /**
+     * Stage an order event in the outbox as part of the caller's transaction.
+     * The outbox relay publishes it after commit.
+     * @param event the order event to publish
+     */
+    public void enqueueOrderEvent(OrderEvent event) {
+        outboxService.enqueue(orderTopic, event.getOrderId(), event);
+    }
 }
@@ -0,0 +1,46 @@
+package com.example.demo.kafka.producer;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.service.OutboxService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background relay that drains the event outbox to Kafka
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxService outboxService;
+
+    @Value("${kafka.outbox.retention-hours:24}")
+    private long retentionHours;
+
+    @Scheduled(fixedDelayString = "${kafka.outbox.poll-interval-ms:100}")
+    public void relay() {
+        try {
+            // Keep draining while batches come back full, then wait for the next tick
+            while (outboxService.relayBatch()) {
+                log.debug("Outbox backlog remaining, relaying next batch");
+            }
+        } catch (Exception e) {
+            log.error("Outbox relay failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${kafka.outbox.purge-cron:0 15 * * * *}")
+    public void purge() {
+        int deleted = outboxService.purgePublishedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            log.info("Purged {} published outbox events", deleted);
+        }
+    }
+}
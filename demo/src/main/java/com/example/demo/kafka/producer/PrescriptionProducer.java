@@ -1,13 +1,13 @@
 package com.example.demo.kafka.producer;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import com.example.demo.event.PrescriptionEvent;
+import com.example.demo.service.OutboxService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,29 +17,33 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class PrescriptionProducer {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final EventPublisher eventPublisher;
+    private final OutboxService outboxService;
 
     @Value("${kafka.topic.prescription:prescriptions}")
     private String prescriptionTopic;
 
     /**
-     * Publish a prescription event to the Kafka topic
+     * Publish a prescription event to the Kafka topic without blocking the caller
      * @param event the prescription event to publish
+     * @return future completed once the broker acknowledges the event
      */
-    public void publishPrescriptionEvent(PrescriptionEvent event) {
+    public CompletableFuture<SendResult<String, Object>> publishPrescriptionEvent(PrescriptionEvent event) {
         try {
             log.info("Publishing prescription event: {}", event.getPrescriptionId());
-            
-            Message<PrescriptionEvent> message = MessageBuilder
-                    .withPayload(event)
-                    .setHeader(KafkaHeaders.TOPIC, prescriptionTopic)
-                    .build();
-
-            kafkaTemplate.send(message);
-            log.info("Successfully published prescription event: {}", event.getPrescriptionId());
+            return eventPublisher.publish(prescriptionTopic, event.getPrescriptionId(), event);
         } catch (Exception e) {
             log.error("Error publishing prescription event: {}", event.getPrescriptionId(), e);
             throw new RuntimeException("Failed to publish prescription event", e);
         }
     }
+
+    /**
+     * Stage a prescription event in the outbox as part of the caller's transaction.
+     * The outbox relay publishes it after commit.
+     * @param event the prescription event to publish
+     */
+    public void enqueuePrescriptionEvent(PrescriptionEvent event) {
+        outboxService.enqueue(prescriptionTopic, event.getPrescriptionId(), event);
+    }
 }
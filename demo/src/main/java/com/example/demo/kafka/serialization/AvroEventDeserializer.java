@@ -0,0 +1,54 @@
+package com.example.demo.kafka.serialization;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Kafka deserializer for events written by {@link AvroEventSerializer}.
+ *
+ * The writer schema is looked up by fingerprint in the {@link LocalSchemaRegistry}
+ * and resolved against the current schema, so older records still decode after a
+ * compatible schema change. Records without the Avro marker are read as JSON, which
+ * lets a topic switch to binary without draining the events already on it.
+ */
+public class AvroEventDeserializer<T> implements Deserializer<T> {
+
+    // Single-object encoding marker (0xC3 0x01)
+    private static final byte MARKER_0 = (byte) 0xC3;
+    private static final byte MARKER_1 = (byte) 0x01;
+
+    private final Class<T> eventType;
+    private final AvroEventMapper<T> mapper;
+    private final BinaryMessageDecoder<GenericRecord> decoder;
+    private final TypedJsonDeserializer<T> jsonFallback;
+
+    public AvroEventDeserializer(LocalSchemaRegistry schemaRegistry, Class<T> eventType) {
+        this.eventType = eventType;
+        this.mapper = AvroEventMappers.forType(eventType);
+        Schema schema = schemaRegistry.getSchema(mapper.schemaName());
+        this.decoder = new BinaryMessageDecoder<>(GenericData.get(), schema, schemaRegistry.getStore());
+        this.jsonFallback = new TypedJsonDeserializer<>(eventType);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length < 2 || data[0] != MARKER_0 || data[1] != MARKER_1) {
+            return jsonFallback.deserialize(topic, data);
+        }
+        try {
+            return mapper.fromRecord(decoder.decode(data));
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Failed to deserialize " + eventType.getSimpleName()
+                    + " from topic " + topic, e);
+        }
+    }
+}
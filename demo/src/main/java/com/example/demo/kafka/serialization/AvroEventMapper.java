@@ -0,0 +1,20 @@
+package com.example.demo.kafka.serialization;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Converts an event POJO to and from its Avro record.
+ * Written by hand per event so the hot path does no reflection.
+ */
+public interface AvroEventMapper<T> {
+
+    /**
+     * Full name of the Avro schema this mapper writes
+     */
+    String schemaName();
+
+    GenericRecord toRecord(T event, Schema schema);
+
+    T fromRecord(GenericRecord record);
+}
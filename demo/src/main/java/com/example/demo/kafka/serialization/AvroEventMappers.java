@@ -0,0 +1,262 @@
+package com.example.demo.kafka.serialization;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+
+import com.example.demo.event.AppointmentEvent;
+import com.example.demo.event.HealthRecordEvent;
+import com.example.demo.event.OrderEvent;
+import com.example.demo.event.PrescriptionEvent;
+
+/**
+ * Avro mappers for the domain events.
+ *
+ * Dates are written as days since the epoch and date-times as UTC epoch millis,
+ * matching the date / local-timestamp-millis logical types in the .avsc files.
+ */
+public final class AvroEventMappers {
+
+    private static final String NAMESPACE = "com.example.demo.event.avro.";
+
+    private static final Map<Class<?>, AvroEventMapper<?>> MAPPERS = Map.of(
+            AppointmentEvent.class, new AppointmentEventMapper(),
+            OrderEvent.class, new OrderEventMapper(),
+            PrescriptionEvent.class, new PrescriptionEventMapper(),
+            HealthRecordEvent.class, new HealthRecordEventMapper()
+    );
+
+    private AvroEventMappers() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> AvroEventMapper<T> forType(Class<T> type) {
+        AvroEventMapper<T> mapper = (AvroEventMapper<T>) MAPPERS.get(type);
+        if (mapper == null) {
+            throw new RuntimeException("No Avro mapping for event type " + type.getName());
+        }
+        return mapper;
+    }
+
+    static class AppointmentEventMapper implements AvroEventMapper<AppointmentEvent> {
+        @Override
+        public String schemaName() {
+            return NAMESPACE + "AppointmentEvent";
+        }
+
+        @Override
+        public GenericRecord toRecord(AppointmentEvent event, Schema schema) {
+            GenericData.Record record = new GenericData.Record(schema);
+            record.put("appointmentId", event.getAppointmentId());
+            record.put("patientId", event.getPatientId());
+            record.put("patientName", event.getPatientName());
+            record.put("doctorId", event.getDoctorId());
+            record.put("doctorName", event.getDoctorName());
+            record.put("date", toEpochDay(event.getDate()));
+            record.put("time", event.getTime());
+            record.put("reason", event.getReason());
+            record.put("status", event.getStatus());
+            record.put("visitType", event.getVisitType());
+            record.put("action", event.getAction());
+            record.put("rejectionReason", event.getRejectionReason());
+            return record;
+        }
+
+        @Override
+        public AppointmentEvent fromRecord(GenericRecord record) {
+            return AppointmentEvent.builder()
+                    .appointmentId(string(record.get("appointmentId")))
+                    .patientId(string(record.get("patientId")))
+                    .patientName(string(record.get("patientName")))
+                    .doctorId(string(record.get("doctorId")))
+                    .doctorName(string(record.get("doctorName")))
+                    .date(localDate(record.get("date")))
+                    .time(string(record.get("time")))
+                    .reason(string(record.get("reason")))
+                    .status(string(record.get("status")))
+                    .visitType(string(record.get("visitType")))
+                    .action(string(record.get("action")))
+                    .rejectionReason(string(record.get("rejectionReason")))
+                    .build();
+        }
+    }
+
+    static class OrderEventMapper implements AvroEventMapper<OrderEvent> {
+        @Override
+        public String schemaName() {
+            return NAMESPACE + "OrderEvent";
+        }
+
+        @Override
+        public GenericRecord toRecord(OrderEvent event, Schema schema) {
+            GenericData.Record record = new GenericData.Record(schema);
+            record.put("orderId", event.getOrderId());
+            record.put("patientId", event.getPatientId());
+            record.put("pharmacyId", event.getPharmacyId());
+            record.put("totalPrice", event.getTotalPrice());
+            record.put("status", event.getStatus());
+            record.put("orderDate", toEpochMillis(event.getOrderDate()));
+            record.put("deliveryDate", toEpochMillis(event.getDeliveryDate()));
+            record.put("action", event.getAction());
+            if (event.getItems() != null) {
+                Schema arraySchema = nonNull(schema.getField("items").schema());
+                Schema itemSchema = arraySchema.getElementType();
+                GenericData.Array<GenericRecord> items = new GenericData.Array<>(event.getItems().size(), arraySchema);
+                for (OrderEvent.OrderItemEvent item : event.getItems()) {
+                    GenericData.Record itemRecord = new GenericData.Record(itemSchema);
+                    itemRecord.put("productId", item.getProductId());
+                    itemRecord.put("quantity", item.getQuantity());
+                    itemRecord.put("price", item.getPrice());
+                    items.add(itemRecord);
+                }
+                record.put("items", items);
+            }
+            return record;
+        }
+
+        @Override
+        public OrderEvent fromRecord(GenericRecord record) {
+            List<OrderEvent.OrderItemEvent> items = null;
+            Object rawItems = record.get("items");
+            if (rawItems instanceof List<?> list) {
+                items = new ArrayList<>(list.size());
+                for (Object element : list) {
+                    GenericRecord itemRecord = (GenericRecord) element;
+                    items.add(OrderEvent.OrderItemEvent.builder()
+                            .productId(string(itemRecord.get("productId")))
+                            .quantity((Integer) itemRecord.get("quantity"))
+                            .price((Double) itemRecord.get("price"))
+                            .build());
+                }
+            }
+            return OrderEvent.builder()
+                    .orderId(string(record.get("orderId")))
+                    .patientId(string(record.get("patientId")))
+                    .pharmacyId(string(record.get("pharmacyId")))
+                    .totalPrice((Double) record.get("totalPrice"))
+                    .status(string(record.get("status")))
+                    .orderDate(localDateTime(record.get("orderDate")))
+                    .deliveryDate(localDateTime(record.get("deliveryDate")))
+                    .items(items)
+                    .action(string(record.get("action")))
+                    .build();
+        }
+    }
+
+    static class PrescriptionEventMapper implements AvroEventMapper<PrescriptionEvent> {
+        @Override
+        public String schemaName() {
+            return NAMESPACE + "PrescriptionEvent";
+        }
+
+        @Override
+        public GenericRecord toRecord(PrescriptionEvent event, Schema schema) {
+            GenericData.Record record = new GenericData.Record(schema);
+            record.put("prescriptionId", event.getPrescriptionId());
+            record.put("patientId", event.getPatientId());
+            record.put("doctorId", event.getDoctorId());
+            record.put("medication", event.getMedication());
+            record.put("dosage", event.getDosage());
+            record.put("frequency", event.getFrequency());
+            record.put("startDate", toEpochDay(event.getStartDate()));
+            record.put("endDate", toEpochDay(event.getEndDate()));
+            record.put("status", event.getStatus());
+            record.put("action", event.getAction());
+            return record;
+        }
+
+        @Override
+        public PrescriptionEvent fromRecord(GenericRecord record) {
+            return PrescriptionEvent.builder()
+                    .prescriptionId(string(record.get("prescriptionId")))
+                    .patientId(string(record.get("patientId")))
+                    .doctorId(string(record.get("doctorId")))
+                    .medication(string(record.get("medication")))
+                    .dosage(string(record.get("dosage")))
+                    .frequency(string(record.get("frequency")))
+                    .startDate(localDate(record.get("startDate")))
+                    .endDate(localDate(record.get("endDate")))
+                    .status(string(record.get("status")))
+                    .action(string(record.get("action")))
+                    .build();
+        }
+    }
+
+    static class HealthRecordEventMapper implements AvroEventMapper<HealthRecordEvent> {
+        @Override
+        public String schemaName() {
+            return NAMESPACE + "HealthRecordEvent";
+        }
+
+        @Override
+        public GenericRecord toRecord(HealthRecordEvent event, Schema schema) {
+            GenericData.Record record = new GenericData.Record(schema);
+            record.put("recordId", event.getRecordId());
+            record.put("patientId", event.getPatientId());
+            record.put("doctorId", event.getDoctorId());
+            record.put("recordType", event.getRecordType());
+            record.put("description", event.getDescription());
+            record.put("recordDate", toEpochDay(event.getRecordDate()));
+            record.put("action", event.getAction());
+            return record;
+        }
+
+        @Override
+        public HealthRecordEvent fromRecord(GenericRecord record) {
+            return HealthRecordEvent.builder()
+                    .recordId(string(record.get("recordId")))
+                    .patientId(string(record.get("patientId")))
+                    .doctorId(string(record.get("doctorId")))
+                    .recordType(string(record.get("recordType")))
+                    .description(string(record.get("description")))
+                    .recordDate(localDate(record.get("recordDate")))
+                    .action(string(record.get("action")))
+                    .build();
+        }
+    }
+
+    // ==================== Field conversions ====================
+
+    // Avro hands strings back as Utf8
+    private static String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static Integer toEpochDay(LocalDate date) {
+        return date == null ? null : (int) date.toEpochDay();
+    }
+
+    private static LocalDate localDate(Object value) {
+        return value == null ? null : LocalDate.ofEpochDay((Integer) value);
+    }
+
+    private static Long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime localDateTime(Object value) {
+        return value == null ? null : LocalDateTime.ofEpochSecond(
+                Math.floorDiv((Long) value, 1000L),
+                (int) Math.floorMod((Long) value, 1000L) * 1_000_000,
+                ZoneOffset.UTC);
+    }
+
+    private static Schema nonNull(Schema union) {
+        if (union.getType() != Schema.Type.UNION) {
+            return union;
+        }
+        for (Schema branch : union.getTypes()) {
+            if (branch.getType() != Schema.Type.NULL) {
+                return branch;
+            }
+        }
+        throw new RuntimeException("Union has no non-null branch: " + union);
+    }
+}
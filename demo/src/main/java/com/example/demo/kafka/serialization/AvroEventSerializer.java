@@ -0,0 +1,44 @@
+package com.example.demo.kafka.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka serializer writing events in Avro single-object encoding:
+ * a 2-byte marker, the 8-byte writer schema fingerprint, then the binary record.
+ * No field names or type headers go on the wire.
+ */
+public class AvroEventSerializer<T> implements Serializer<T> {
+
+    private final AvroEventMapper<T> mapper;
+    private final Schema schema;
+    private final BinaryMessageEncoder<GenericRecord> encoder;
+
+    public AvroEventSerializer(LocalSchemaRegistry schemaRegistry, Class<T> eventType) {
+        this.mapper = AvroEventMappers.forType(eventType);
+        this.schema = schemaRegistry.getSchema(mapper.schemaName());
+        this.encoder = new BinaryMessageEncoder<>(GenericData.get(), schema);
+    }
+
+    @Override
+    public byte[] serialize(String topic, T event) {
+        if (event == null) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            encoder.encode(mapper.toRecord(event, schema), out);
+            return out.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Failed to serialize " + event.getClass().getSimpleName()
+                    + " for topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.kafka.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.message.SchemaStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * File-based stand-in for a schema registry.
+ *
+ * Loads every Avro schema (.avsc) found at the configured location once at startup.
+ * Binary events carry the 64-bit fingerprint of their writer schema, and the
+ * deserializers resolve it here instead of calling out to a registry service.
+ *
+ * When evolving an event, keep the old file and add the new one with a higher
+ * version suffix (OrderEvent.v2.avsc; a file without a suffix is version 1). The
+ * highest version of each record is the writer schema; older ones are only
+ * registered by fingerprint so records already on the topic can still be read.
+ * Two files with the same record name and version fail startup.
+ */
+@Component
+@Slf4j
+public class LocalSchemaRegistry {
+
+    private static final Pattern VERSION_SUFFIX = Pattern.compile("\\.v(\\d+)\\.avsc$");
+
+    private final SchemaStore.Cache store = new SchemaStore.Cache();
+    private final Map<String, Schema> schemasByName = new HashMap<>();
+    private final Map<String, Integer> versionsByName = new HashMap<>();
+
+    public LocalSchemaRegistry(
+            @Value("${kafka.serialization.schema-location:classpath*:avro/*.avsc}") String schemaLocation) {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources(schemaLocation);
+            for (Resource resource : resources) {
+                try (InputStream in = resource.getInputStream()) {
+                    register(new Schema.Parser().parse(in), version(resource.getFilename()));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load Avro schemas from " + schemaLocation, e);
+        }
+        if (schemasByName.isEmpty()) {
+            throw new RuntimeException("No Avro schemas found at " + schemaLocation);
+        }
+        log.info("Loaded {} Avro event schemas from {}", schemasByName.size(), schemaLocation);
+    }
+
+    /**
+     * Writer schema (highest version) registered under the given full name (namespace + record name)
+     */
+    public Schema getSchema(String fullName) {
+        Schema schema = schemasByName.get(fullName);
+        if (schema == null) {
+            throw new RuntimeException("No Avro schema registered for " + fullName);
+        }
+        return schema;
+    }
+
+    /**
+     * Fingerprint lookup used by the binary message decoders
+     */
+    public SchemaStore getStore() {
+        return store;
+    }
+
+    private void register(Schema schema, int version) {
+        store.addSchema(schema);
+        String fullName = schema.getFullName();
+        Integer current = versionsByName.get(fullName);
+        if (current != null && current == version) {
+            throw new RuntimeException("Two Avro schema files for " + fullName + " version " + version);
+        }
+        if (current == null || version > current) {
+            schemasByName.put(fullName, schema);
+            versionsByName.put(fullName, version);
+        }
+        log.debug("Registered Avro schema {} v{} (fingerprint {})", fullName, version,
+                Long.toHexString(SchemaNormalization.parsingFingerprint64(schema)));
+    }
+
+    static int version(String filename) {
+        Matcher matcher = filename == null ? null : VERSION_SUFFIX.matcher(filename);
+        return matcher != null && matcher.find() ? Integer.parseInt(matcher.group(1)) : 1;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.kafka.serialization;
+
+import java.io.IOException;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import com.example.demo.event.EventJson;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * JSON deserializer bound to a single event type.
+ *
+ * The Jackson reader is built once per topic, so records are read straight into the
+ * concrete event class without type header lookups or a second conversion pass.
+ */
+public class TypedJsonDeserializer<T> implements Deserializer<T> {
+
+    private final Class<T> eventType;
+    private final ObjectReader reader;
+
+    public TypedJsonDeserializer(Class<T> eventType) {
+        this.eventType = eventType;
+        this.reader = EventJson.mapper().readerFor(eventType);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return reader.readValue(data);
+        } catch (IOException e) {
+            throw new SerializationException("Failed to deserialize " + eventType.getSimpleName()
+                    + " from topic " + topic, e);
+        }
+    }
+}
@@ -2,8 +2,12 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.Appointment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,5 +16,13 @@ public interface AppointmentRepository extends JpaRepository<Appointment, String
     List<Appointment> findByDoctorId(String doctorId);
     List<Appointment> findByDate(LocalDate date);
     List<Appointment> findByDoctorIdAndDate(String doctorId, LocalDate date);
+    List<Appointment> findByDoctorIdAndDateAndTimeBetweenOrderByTimeAsc(String doctorId, LocalDate date, LocalTime from, LocalTime to);
+    List<Appointment> findByDoctorIdAndDateBetweenOrderByDateAscTimeAsc(String doctorId, LocalDate from, LocalDate to);
     List<Appointment> findByStatus(String status);
+
+    @Query("SELECT COUNT(a) > 0 FROM Appointment a WHERE a.doctorId = :doctorId AND a.date = :date " +
+            "AND a.time = :time AND a.id <> :excludeId AND a.status NOT IN :inactiveStatuses")
+    boolean existsActiveBooking(@Param("doctorId") String doctorId, @Param("date") LocalDate date,
+                                @Param("time") LocalTime time, @Param("excludeId") String excludeId,
+                                @Param("inactiveStatuses") Collection<String> inactiveStatuses);
 }
@@ -0,0 +1,77 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.ConversationSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Conversation inbox in one SQL statement. Pages are ordered by conversations.last_message_at,
+ * so Postgres reads only the page's rows from the index; the latest message (LATERAL) and
+ * the unread count are then looked up per row through idx_messages_conversation_created.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ConversationInboxRepository {
+
+    public enum Scope { ALL, AGENT, USER }
+
+    private static final String PREVIEW_LENGTH = "200";
+
+    private static final String SCOPE_FILTER = "WHERE (:scope = 'ALL' "
+            + "OR (:scope = 'AGENT' AND (c.agent_id = :userId OR c.agent_id IS NULL)) "
+            + "OR (:scope = 'USER' AND c.user_id = :userId)) ";
+
+    private static final String PAGE_SQL = "SELECT c.id, c.user_id, c.agent_id, c.status, c.source, c.subject, "
+            + "c.customer_phone, c.created_at, c.updated_at, c.last_message_at, c.version, "
+            + "left(lm.body, " + PREVIEW_LENGTH + ") AS last_message_preview, lm.direction AS last_message_direction, "
+            + "(SELECT count(*) FROM messages u WHERE u.conversation_id = c.id AND u.direction = 'inbound' "
+            + "AND (c.agent_last_read_at IS NULL OR u.created_at > c.agent_last_read_at)) AS unread_count "
+            + "FROM conversations c "
+            + "LEFT JOIN LATERAL (SELECT m.body, m.direction FROM messages m WHERE m.conversation_id = c.id "
+            + "ORDER BY m.created_at DESC LIMIT 1) lm ON true "
+            + SCOPE_FILTER
+            + "ORDER BY c.last_message_at DESC NULLS LAST, c.created_at DESC "
+            + "LIMIT :limit OFFSET :offset";
+
+    private static final String COUNT_SQL = "SELECT count(*) FROM conversations c " + SCOPE_FILTER;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Page<ConversationSummary> findInbox(Scope scope, String userId, Pageable pageable) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("scope", scope.name())
+                .addValue("userId", userId)
+                .addValue("limit", pageable.getPageSize())
+                .addValue("offset", pageable.getOffset());
+        List<ConversationSummary> rows = jdbcTemplate.query(PAGE_SQL, params, (rs, i) -> toSummary(rs));
+        Long total = jdbcTemplate.queryForObject(COUNT_SQL, params, Long.class);
+        return new PageImpl<>(rows, pageable, total != null ? total : 0);
+    }
+
+    private static ConversationSummary toSummary(ResultSet rs) throws SQLException {
+        return new ConversationSummary(
+                rs.getString("id"),
+                rs.getString("user_id"),
+                rs.getString("agent_id"),
+                rs.getString("status"),
+                rs.getString("source"),
+                rs.getString("subject"),
+                rs.getString("customer_phone"),
+                rs.getObject("created_at", LocalDateTime.class),
+                rs.getObject("updated_at", LocalDateTime.class),
+                rs.getObject("last_message_at", LocalDateTime.class),
+                rs.getString("last_message_preview"),
+                rs.getString("last_message_direction"),
+                rs.getLong("unread_count"),
+                rs.getLong("version"));
+    }
+}
@@ -1,8 +1,14 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.Conversation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,5 +17,61 @@ public interface ConversationRepository extends JpaRepository<Conversation, Stri
     List<Conversation> findByUserId(String userId);
     List<Conversation> findByAgentId(String agentId);
     Optional<Conversation> findFirstByCustomerPhoneOrderByCreatedAtDesc(String customerPhone);
+    Optional<Conversation> findFirstByCustomerPhoneAndStatusOrderByCreatedAtDesc(String customerPhone, String status);
     List<Conversation> findByStatus(String status);
+    long countByAgentIdAndStatus(String agentId, String status);
+
+    // Agent claim: succeeds if nobody else holds the conversation
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Conversation c SET c.agentId = :agentId, c.unanswered = false, c.version = c.version + 1, " +
+            "c.updatedAt = :now WHERE c.id = :id AND (c.agentId IS NULL OR c.agentId = :agentId)")
+    int claim(@Param("id") String id, @Param("agentId") String agentId, @Param("now") LocalDateTime now);
+
+    // Automatic assignment of an open, unassigned conversation
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Conversation c SET c.agentId = :agentId, c.unanswered = true, c.version = c.version + 1, " +
+            "c.updatedAt = :now WHERE c.id = :id AND c.agentId IS NULL AND c.status = 'open'")
+    int assignIfUnassigned(@Param("id") String id, @Param("agentId") String agentId, @Param("now") LocalDateTime now);
+
+    // Move (or release, with a null target) a conversation the given agent received automatically
+    // and has not answered; the flag is shared, so an answer on any instance stops the move
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Conversation c SET c.agentId = :toAgentId, c.version = c.version + 1, c.updatedAt = :now " +
+            "WHERE c.id = :id AND c.agentId = :fromAgentId AND c.unanswered = true")
+    int reassignUnanswered(@Param("id") String id, @Param("fromAgentId") String fromAgentId,
+                           @Param("toAgentId") String toAgentId, @Param("now") LocalDateTime now);
+
+    // Admin reassignment against the version the client last saw
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Conversation c SET c.agentId = :agentId, c.unanswered = false, c.version = c.version + 1, " +
+            "c.updatedAt = :now WHERE c.id = :id AND c.version = :version")
+    int assignAtVersion(@Param("id") String id, @Param("agentId") String agentId,
+                        @Param("version") long version, @Param("now") LocalDateTime now);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Conversation c SET c.status = 'closed', c.version = c.version + 1, c.updatedAt = :now " +
+            "WHERE c.id = :id AND c.status = 'open'")
+    int close(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Query("SELECT c.agentId, count(c) FROM Conversation c WHERE c.agentId IS NOT NULL AND c.status = 'open' GROUP BY c.agentId")
+    List<Object[]> countOpenByAgent();
+
+    @Query("SELECT c.id FROM Conversation c WHERE c.agentId IS NULL AND c.status = 'open' ORDER BY c.createdAt")
+    List<String> findUnassignedOpenIds(Pageable pageable);
+
+    // First agent reply or claim
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Conversation c SET c.unanswered = false WHERE c.id = :id AND c.unanswered = true")
+    int markAnswered(@Param("id") String id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Conversation c SET c.agentLastReadAt = :readAt WHERE c.id = :id")
+    int markAgentRead(@Param("id") String id, @Param("readAt") LocalDateTime readAt);
 }
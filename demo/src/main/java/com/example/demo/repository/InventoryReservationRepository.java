@@ -0,0 +1,18 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.InventoryReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface InventoryReservationRepository extends JpaRepository<InventoryReservation, String> {
+    List<InventoryReservation> findByOrderId(String orderId);
+
+    @Query(value = "SELECT DISTINCT order_id FROM inventory_reservations WHERE status = 'held' AND expires_at < :now " +
+            "LIMIT :limit", nativeQuery = true)
+    List<String> findExpiredOrderIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -3,9 +3,11 @@ package com.example.demo.repository;
 import com.example.demo.entity.Message;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, String> {
     List<Message> findByConversationIdOrderByCreatedAtAsc(String conversationId);
+    List<Message> findByConversationIdAndCreatedAtAfterOrderByCreatedAtAsc(String conversationId, LocalDateTime since);
 }
@@ -2,11 +2,35 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, String> {
     List<Order> findByUserId(String userId);
     List<Order> findByStatus(String status);
+
+    // Compare-and-set on the fulfilment status: matches only while the order is in one of :from
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.updatedAt = :now WHERE o.id = :id AND o.status IN :from")
+    int transition(@Param("id") String id, @Param("from") Collection<String> from,
+                   @Param("to") String to, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.paymentStatus = :to, o.updatedAt = :now " +
+            "WHERE o.id = :id AND (o.paymentStatus IS NULL OR o.paymentStatus IN :from)")
+    int transitionPayment(@Param("id") String id, @Param("from") Collection<String> from,
+                          @Param("to") String to, @Param("now") LocalDateTime now);
+
+    // Record a confirmed payment once; a pending order moves on to processing in the same statement
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.paymentStatus = 'completed', " +
+            "o.status = CASE WHEN o.status = 'pending' THEN 'processing' ELSE o.status END, o.updatedAt = :now " +
+            "WHERE o.id = :id AND (o.paymentStatus IS NULL OR o.paymentStatus IN :from)")
+    int markPaid(@Param("id") String id, @Param("from") Collection<String> from, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,32 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, String> {
+
+    // SKIP LOCKED lets every backend instance relay concurrently without handing out the same rows.
+    // A row waits while an older row with the same key is backing off, so keys stay in order.
+    @Query(value = "SELECT * FROM event_outbox e WHERE e.published_at IS NULL " +
+            "AND (e.next_attempt_at IS NULL OR e.next_attempt_at <= :now) " +
+            "AND NOT EXISTS (SELECT 1 FROM event_outbox b WHERE b.published_at IS NULL AND b.topic = e.topic " +
+            "AND b.message_key = e.message_key AND b.created_at < e.created_at AND b.next_attempt_at > :now) " +
+            "ORDER BY e.created_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.publishedAt = :publishedAt WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<String> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.publishedAt < :cutoff")
+    int deletePublishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,52 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.PaymentSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentSessionRepository extends JpaRepository<PaymentSession, String> {
+    Optional<PaymentSession> findFirstByOrderIdAndStatus(String orderId, String status);
+
+    // SKIP LOCKED lets every backend instance reconcile concurrently without checking the same session twice
+    @Query(value = "SELECT * FROM payment_sessions WHERE status = 'pending' AND next_check_at <= :now " +
+            "ORDER BY next_check_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<PaymentSession> lockDueBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE PaymentSession s SET s.checkAttempts = :attempts, s.nextCheckAt = :nextCheckAt " +
+            "WHERE s.id = :id AND s.status = 'pending'")
+    int reschedule(@Param("id") String id, @Param("attempts") int attempts, @Param("nextCheckAt") LocalDateTime nextCheckAt);
+
+    // Order cancelled or its stock released: the checkout link must not be paid any more
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE PaymentSession s SET s.status = 'expired', s.settledAt = :now " +
+            "WHERE s.orderId = :orderId AND s.status = 'pending'")
+    int expirePending(@Param("orderId") String orderId, @Param("now") LocalDateTime now);
+
+    // Gateway took the money after the session was closed (expired, order cancelled or stock
+    // released): keep the evidence so it can be refunded or reconciled by hand
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE PaymentSession s SET s.status = 'paid_after_expiry', " +
+            "s.gatewayReference = COALESCE(:reference, s.gatewayReference), s.settledAt = :now " +
+            "WHERE s.id = :id AND s.status = 'expired'")
+    int recordLatePayment(@Param("id") String id, @Param("reference") String reference, @Param("now") LocalDateTime now);
+
+    // Settle a session once; replayed webhooks and a racing reconciliation match no row
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE PaymentSession s SET s.status = :status, s.gatewayReference = COALESCE(:reference, s.gatewayReference), " +
+            "s.settledAt = :now WHERE s.id = :id AND s.status = 'pending'")
+    int settle(@Param("id") String id, @Param("status") String status,
+               @Param("reference") String reference, @Param("now") LocalDateTime now);
+}
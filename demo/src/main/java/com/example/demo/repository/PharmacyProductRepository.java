@@ -2,12 +2,31 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.PharmacyProduct;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface PharmacyProductRepository extends JpaRepository<PharmacyProduct, String> {
+    // Named parameters, so bulk paths can batch the same statement through NamedParameterJdbcTemplate
+    String SET_STOCK_SQL = "UPDATE pharmacy_products SET stock_quantity = :quantity, in_stock = (:quantity > 0) WHERE id = :id";
+
     List<PharmacyProduct> findByInStockTrue();
     List<PharmacyProduct> findByCategory(String category);
     List<PharmacyProduct> findByNameContainingIgnoreCase(String name);
+
+    // Server-side cursor for exports; needs an open (read-only) transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT p FROM PharmacyProduct p ORDER BY p.id")
+    Stream<PharmacyProduct> streamAll();
+
+    // Admin stock count; in_stock follows it
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = SET_STOCK_SQL, nativeQuery = true)
+    int setStockQuantity(@Param("id") String id, @Param("quantity") int quantity);
 }
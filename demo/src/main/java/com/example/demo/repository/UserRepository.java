@@ -1,8 +1,16 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.DoctorDirectoryEntry;
 import com.example.demo.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.List;
 
@@ -10,4 +18,31 @@ import java.util.List;
 public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByEmail(String email);
     List<User> findByRole(String role);
+
+    @Query("SELECT new com.example.demo.dto.DoctorDirectoryEntry(u.id, u.name, u.specialization, u.imageUrl) " +
+            "FROM User u WHERE u.role = 'doctor'")
+    List<DoctorDirectoryEntry> findDoctorDirectory();
+
+    // Only replaces the hash it was computed from, so a concurrent password change wins
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.passwordHash = :newHash WHERE u.id = :id AND u.passwordHash = :oldHash")
+    int replacePasswordHash(@Param("id") String id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.lastSeenAt = :seenAt WHERE u.id = :id AND u.role = 'agent'")
+    int touchAgentPresence(@Param("id") String id, @Param("seenAt") LocalDateTime seenAt);
+
+    @Query("SELECT u.id FROM User u WHERE u.role = 'agent' AND u.lastSeenAt > :since")
+    List<String> findOnlineAgentIds(@Param("since") LocalDateTime since);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdForUpdate(@Param("id") String id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.phone = :phone, u.phoneVerified = true WHERE u.id = :id")
+    int markPhoneVerified(@Param("id") String id, @Param("phone") String phone);
 }
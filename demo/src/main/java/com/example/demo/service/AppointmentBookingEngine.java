@@ -0,0 +1,99 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.repository.AppointmentRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serialises bookings per doctor so a slot cannot be taken twice.
+ *
+ * Doctors hash onto a fixed set of lock stripes, so bookings for different doctors
+ * run in parallel while bookings for the same doctor queue up. The slot check, the
+ * insert and the commit all happen under the stripe lock. The partial unique index
+ * on (doctor_id, date, time) catches the remaining race between backend instances.
+ */
+@Component
+@Slf4j
+public class AppointmentBookingEngine {
+
+    public static final String SLOT_TAKEN_MESSAGE = "Time slot is already booked";
+
+    // Appointments in these states no longer hold their slot
+    public static final List<String> INACTIVE_STATUSES = List.of("cancelled", "rejected");
+
+    private final AppointmentRepository appointmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock[] stripes;
+    private final long lockTimeoutMs;
+
+    public AppointmentBookingEngine(AppointmentRepository appointmentRepository,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${appointments.booking.lock-stripes:64}") int lockStripes,
+                                    @Value("${appointments.booking.lock-timeout-ms:5000}") long lockTimeoutMs) {
+        this.appointmentRepository = appointmentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.stripes = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Run a booking in its own transaction once the doctor's slot is confirmed free.
+     *
+     * @param excludeAppointmentId appointment being moved, whose current slot does not count (null for new bookings)
+     * @throws ConflictException with {@link #SLOT_TAKEN_MESSAGE} if another active appointment holds the slot
+     */
+    public <T> T book(String doctorId, LocalDate date, LocalTime time, String excludeAppointmentId, Supplier<T> booking) {
+        ReentrantLock lock = stripeFor(doctorId);
+        try {
+            if (!lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Booking is busy, please retry");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Booking interrupted", e);
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                if (appointmentRepository.existsActiveBooking(doctorId, date, time,
+                        excludeAppointmentId != null ? excludeAppointmentId : "", INACTIVE_STATUSES)) {
+                    throw new ConflictException(SLOT_TAKEN_MESSAGE);
+                }
+                return booking.get();
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance won the race; the unique index rejected this insert
+            log.info("Slot {} {} for doctor {} taken concurrently", date, time, doctorId);
+            throw new ConflictException(SLOT_TAKEN_MESSAGE, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether an appointment in this status occupies its slot (same rule as the unique index)
+     */
+    public static boolean holdsSlot(String status) {
+        return status != null && !INACTIVE_STATUSES.contains(status);
+    }
+
+    private ReentrantLock stripeFor(String doctorId) {
+        int h = doctorId.hashCode();
+        h ^= (h >>> 16); // spread high bits so similar ids do not share a stripe
+        return stripes[(h & 0x7fffffff) % stripes.length];
+    }
+}
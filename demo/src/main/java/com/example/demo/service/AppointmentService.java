@@ -1,17 +1,20 @@
 package com.example.demo.service;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.demo.dto.AppointmentDTO;
 import com.example.demo.entity.Appointment;
@@ -30,11 +33,39 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class AppointmentService {
 
+    public static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
     private final AppointmentRepository appointmentRepository;
     private final UserRepository userRepository;
     private final AppointmentProducer appointmentProducer;
+    private final AppointmentBookingEngine bookingEngine;
+    private final SlotHoldService slotHoldService;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Book a new appointment. Not @Transactional: the booking engine opens the
+     * transaction itself so the commit happens while the doctor's lock is held.
+     * Slot holds belong to whoever placed them, so the hold check and its release use
+     * the booking caller (null if anonymous), not the patient being booked.
+     */
+    public Appointment createAppointment(AppointmentDTO dto, String callerId) {
+        if (dto.getDoctorId() == null || dto.getDate() == null || dto.getTime() == null) {
+            throw new RuntimeException("doctorId, date and time are required");
+        }
+        Appointment saved = bookingEngine.book(dto.getDoctorId(), dto.getDate(), dto.getTime(), null, () -> {
+            if (slotHoldService.isHeldByOther(dto.getDoctorId(), dto.getDate(), dto.getTime(), callerId)) {
+                throw new ConflictException(SlotHoldService.SLOT_HELD_MESSAGE);
+            }
+            return insertAppointment(dto);
+        });
+        if (callerId != null) {
+            slotHoldService.consume(saved.getDoctorId(), saved.getDate(), saved.getTime(), callerId);
+        }
+        return saved;
+    }
 
-    public Appointment createAppointment(AppointmentDTO dto) {
+    private Appointment insertAppointment(AppointmentDTO dto) {
         Appointment appointment = new Appointment();
         appointment.setId(UUID.randomUUID().toString());
         appointment.setPatientId(dto.getPatientId());
@@ -45,7 +76,8 @@ public class AppointmentService {
         appointment.setStatus(dto.getStatus() != null ? dto.getStatus() : "scheduled");
         appointment.setVisitType(dto.getVisitType() != null ? dto.getVisitType() : "in_person");
 
-        Appointment saved = appointmentRepository.save(appointment);
+        // Flush inside the booking so a unique index violation surfaces here, under the lock
+        Appointment saved = appointmentRepository.saveAndFlush(appointment);
 
         // Publish appointment created event to Kafka
         AppointmentEvent event = AppointmentEvent.builder()
@@ -53,13 +85,13 @@ public class AppointmentService {
                 .patientId(saved.getPatientId())
                 .doctorId(saved.getDoctorId())
                 .date(saved.getDate())
-                .time(saved.getTime())
+                .time(formatTime(saved.getTime()))
                 .reason(saved.getReason())
                 .status(saved.getStatus())
                 .visitType(saved.getVisitType())
                 .action("created")
                 .build();
-        appointmentProducer.publishAppointmentEvent(event);
+        appointmentProducer.enqueueAppointmentEvent(event);
 
         return saved;
     }
@@ -103,7 +135,26 @@ public class AppointmentService {
         return patients;
     }
 
+    /**
+     * Update an appointment. Changes that move it into another slot (new date/time, or
+     * reactivating a cancelled/rejected one) go through the booking engine.
+     */
     public Appointment updateAppointment(String id, AppointmentDTO dto) {
+        Appointment current = getAppointmentById(id);
+        LocalDate date = dto.getDate() != null ? dto.getDate() : current.getDate();
+        LocalTime time = dto.getTime() != null ? dto.getTime() : current.getTime();
+        String status = dto.getStatus() != null ? dto.getStatus() : current.getStatus();
+
+        boolean takesSlot = AppointmentBookingEngine.holdsSlot(status)
+                && (!date.equals(current.getDate()) || !Objects.equals(time, current.getTime())
+                        || !AppointmentBookingEngine.holdsSlot(current.getStatus()));
+        if (takesSlot) {
+            return bookingEngine.book(current.getDoctorId(), date, time, id, () -> applyUpdate(id, dto));
+        }
+        return transactionTemplate.execute(tx -> applyUpdate(id, dto));
+    }
+
+    private Appointment applyUpdate(String id, AppointmentDTO dto) {
         Appointment appointment = getAppointmentById(id);
         String oldStatus = appointment.getStatus();
         log.info("🔵 UPDATE APPOINTMENT - appointmentId={}, oldStatus={}, newStatus={}", 
@@ -150,22 +201,23 @@ public class AppointmentService {
                 .patientId(updated.getPatientId())
                 .doctorId(updated.getDoctorId())
                 .date(updated.getDate())
-                .time(updated.getTime())
+                .time(formatTime(updated.getTime()))
                 .reason(updated.getReason())
                 .status(updated.getStatus())
                 .visitType(updated.getVisitType())
                 .action(action)
                 .build();
         
-        log.info("  ⏳ Publishing Kafka event - appointmentId={}, action={}", 
+        log.info("  ⏳ Queueing Kafka event in outbox - appointmentId={}, action={}", 
                 event.getAppointmentId(), event.getAction());
-        appointmentProducer.publishAppointmentEvent(event);
-        log.info("  ✓ Kafka event published successfully");
+        appointmentProducer.enqueueAppointmentEvent(event);
+        log.info("  ✓ Kafka event queued for relay");
         
         log.info("🟢 UPDATE APPOINTMENT COMPLETED");
         return updated;
     }
 
+    @Transactional
     public void deleteAppointment(String id) {
         Appointment appointment = getAppointmentById(id);
         appointmentRepository.deleteById(id);
@@ -176,16 +228,17 @@ public class AppointmentService {
                 .patientId(appointment.getPatientId())
                 .doctorId(appointment.getDoctorId())
                 .date(appointment.getDate())
-                .time(appointment.getTime())
+                .time(formatTime(appointment.getTime()))
                 .status("cancelled")
                 .action("cancelled")
                 .build();
-        appointmentProducer.publishAppointmentEvent(event);
+        appointmentProducer.enqueueAppointmentEvent(event);
     }
 
     /**
      * Accept an appointment request (called by admin or doctor)
      */
+    @Transactional
     public Appointment acceptAppointment(String id, String doctorName) {
         log.info("🔵 APPOINTMENT ACCEPT STARTED - appointmentId={}, doctorName={}", id, doctorName);
         
@@ -204,17 +257,17 @@ public class AppointmentService {
                 .doctorId(updated.getDoctorId())
                 .doctorName(doctorName)
                 .date(updated.getDate())
-                .time(updated.getTime())
+                .time(formatTime(updated.getTime()))
                 .reason(updated.getReason())
                 .status(updated.getStatus())
                 .visitType(updated.getVisitType())
                 .action("accepted")
                 .build();
         
-        log.info("  ⏳ Publishing Kafka event - appointmentId={}, action={}, patientId={}", 
+        log.info("  ⏳ Queueing Kafka event in outbox - appointmentId={}, action={}, patientId={}", 
                 event.getAppointmentId(), event.getAction(), event.getPatientId());
-        appointmentProducer.publishAppointmentEvent(event);
-        log.info("  ✓ Kafka event published successfully");
+        appointmentProducer.enqueueAppointmentEvent(event);
+        log.info("  ✓ Kafka event queued for relay");
         
         log.info("🟢 APPOINTMENT ACCEPT COMPLETED");
         return updated;
@@ -223,6 +276,7 @@ public class AppointmentService {
     /**
      * Reject an appointment request (called by admin or doctor)
      */
+    @Transactional
     public Appointment rejectAppointment(String id, String doctorName, String rejectionReason) {
         Appointment appointment = getAppointmentById(id);
         appointment.setStatus("rejected");
@@ -236,65 +290,57 @@ public class AppointmentService {
                 .doctorId(updated.getDoctorId())
                 .doctorName(doctorName)
                 .date(updated.getDate())
-                .time(updated.getTime())
+                .time(formatTime(updated.getTime()))
                 .reason(updated.getReason())
                 .status(updated.getStatus())
                 .visitType(updated.getVisitType())
                 .action("rejected")
                 .rejectionReason(rejectionReason)
                 .build();
-        appointmentProducer.publishAppointmentEvent(event);
+        appointmentProducer.enqueueAppointmentEvent(event);
 
         return updated;
     }
 
-    public Map<String, Object> getAvailability(String doctorId, LocalDate date, Integer bufferMinutes) {
-        // Make buffer effectively final to use in lambda
-        final int buffer = (bufferMinutes != null) ? bufferMinutes : 10;
-
-        List<Appointment> appointments = appointmentRepository.findByDoctorIdAndDate(doctorId, date);
-        Set<String> occupied = new HashSet<>();
-
+    /**
+     * Slots for the day. Slots held by other patients are unavailable; the viewer's own hold stays bookable.
+     */
+    public Map<String, Object> getAvailability(String doctorId, LocalDate date, Integer bufferMinutes, String viewerId) {
+        final int buffer = (bufferMinutes != null) ? Math.max(bufferMinutes, 0) : 10;
+        final int startMinute = 9 * 60;
+        final int endMinute = 17 * 60;
+        final int stepMinutes = 30;
+
+        // Only appointments that can block a slot within the working day (plus buffer) are loaded
+        List<Appointment> appointments = appointmentRepository.findByDoctorIdAndDateAndTimeBetweenOrderByTimeAsc(
+                doctorId, date, minuteToTime(startMinute - buffer), minuteToTime(endMinute + buffer));
+
+        // occupiedBefore[m] = number of active appointments starting before minute m of the day
+        int[] occupiedBefore = new int[MINUTES_PER_DAY + 1];
         for (Appointment apt : appointments) {
-            if (apt.getStatus() != null && !apt.getStatus().equals("cancelled")) {
-                occupied.add(apt.getTime());
+            if (AppointmentBookingEngine.holdsSlot(apt.getStatus())) {
+                occupiedBefore[apt.getTime().getHour() * 60 + apt.getTime().getMinute() + 1]++;
             }
         }
-
-        List<Map<String, Object>> slots = new ArrayList<>();
-        int startHour = 9;
-        int endHour = 17;
-        int stepMinutes = 30;
-
-        Set<Integer> occupiedMinutes = new HashSet<>();
-        for (String time : occupied) {
-            try {
-                String[] parts = time.split(":");
-                int h = Integer.parseInt(parts[0]);
-                int m = Integer.parseInt(parts[1]);
-                occupiedMinutes.add(h * 60 + m);
-            } catch (Exception e) {
-                // Skip malformed times
-            }
+        for (int m = 1; m <= MINUTES_PER_DAY; m++) {
+            occupiedBefore[m] += occupiedBefore[m - 1];
         }
 
-        LocalDateTime start = LocalDateTime.of(date, LocalTime.of(startHour, 0));
-        LocalDateTime end = LocalDateTime.of(date, LocalTime.of(endHour, 0));
+        Set<LocalTime> held = slotHoldService.heldTimes(doctorId, date, viewerId);
 
-        while (start.isBefore(end)) {
-            String timeStr = String.format("%02d:%02d", start.getHour(), start.getMinute());
-            final int timeMinutes = start.getHour() * 60 + start.getMinute();
-
-            boolean available = !occupied.contains(timeStr);
-            boolean blocked = occupiedMinutes.stream()
-                    .anyMatch(om -> Math.abs(timeMinutes - om) <= buffer);
+        List<Map<String, Object>> slots = new ArrayList<>();
+        for (int minute = startMinute; minute < endMinute; minute += stepMinutes) {
+            int from = Math.max(minute - buffer, 0);
+            int to = Math.min(minute + buffer, MINUTES_PER_DAY - 1);
+            boolean blocked = occupiedBefore[to + 1] - occupiedBefore[from] > 0;
+            LocalTime time = minuteToTime(minute);
+            boolean isHeld = held.contains(time);
 
             Map<String, Object> slot = new HashMap<>();
-            slot.put("time", timeStr);
-            slot.put("available", available && !blocked);
+            slot.put("time", formatTime(time));
+            slot.put("available", !blocked && !isHeld);
+            slot.put("held", isHeld);
             slots.add(slot);
-
-            start = start.plusMinutes(stepMinutes);
         }
 
         Map<String, Object> result = new HashMap<>();
@@ -305,4 +351,13 @@ public class AppointmentService {
 
         return result;
     }
-}
\ No newline at end of file
+
+    public static String formatTime(LocalTime time) {
+        return time != null ? time.format(TIME_FORMAT) : null;
+    }
+
+    private static LocalTime minuteToTime(int minuteOfDay) {
+        int clamped = Math.max(0, Math.min(minuteOfDay, MINUTES_PER_DAY - 1));
+        return LocalTime.of(clamped / 60, clamped % 60);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.demo.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.event.AppointmentEvent;
+import com.example.demo.event.AppointmentTimeline;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory view of appointment timelines, materialised from the compacted
+ * appointments-state topic. Every backend instance replays the topic on startup and
+ * then follows it, so reads never touch Postgres. The view is eventually consistent:
+ * it lags the database by the outbox relay and consumer delay.
+ */
+@Service
+@Slf4j
+public class AppointmentTimelineService {
+
+    private static final int MAX_ENTRIES = 100;
+
+    private final Map<String, AppointmentTimeline> timelines = new ConcurrentHashMap<>();
+    private final Map<LocalDate, Set<String>> idsByDate = new ConcurrentHashMap<>();
+
+    @Value("${appointments.timeline.retention-days:30}")
+    private int retentionDays = 30;
+
+    /**
+     * Fold an appointment event into the current snapshot. The version is the event's
+     * offset in the source partition, so it keeps increasing even when the local view is
+     * still replaying. Fields missing from the event keep their previous value.
+     */
+    public AppointmentTimeline fold(AppointmentEvent event, long timestampMs, long version) {
+        AppointmentTimeline current = timelines.get(event.getAppointmentId());
+        LocalDateTime at = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestampMs), ZoneId.systemDefault());
+
+        List<AppointmentTimeline.Entry> entries = new ArrayList<>(
+                current != null && current.getEntries() != null ? current.getEntries() : List.of());
+        entries.add(AppointmentTimeline.Entry.builder()
+                .action(event.getAction())
+                .status(event.getStatus())
+                .at(at)
+                .rejectionReason(event.getRejectionReason())
+                .build());
+        if (entries.size() > MAX_ENTRIES) {
+            entries = new ArrayList<>(entries.subList(entries.size() - MAX_ENTRIES, entries.size()));
+        }
+
+        AppointmentTimeline base = current != null ? current : new AppointmentTimeline();
+        return base.toBuilder()
+                .appointmentId(event.getAppointmentId())
+                .patientId(orElse(event.getPatientId(), base.getPatientId()))
+                .doctorId(orElse(event.getDoctorId(), base.getDoctorId()))
+                .date(orElse(event.getDate(), base.getDate()))
+                .time(orElse(event.getTime(), base.getTime()))
+                .status(orElse(event.getStatus(), base.getStatus()))
+                .visitType(orElse(event.getVisitType(), base.getVisitType()))
+                .version(version)
+                .updatedAt(at)
+                .entries(entries)
+                .build();
+    }
+
+    /**
+     * Apply a snapshot from the state topic. Stale versions are ignored, a null snapshot
+     * (tombstone) removes the appointment, and snapshots past the retention window are dropped.
+     */
+    public void apply(String appointmentId, AppointmentTimeline snapshot) {
+        if (snapshot == null) {
+            AppointmentTimeline removed = timelines.remove(appointmentId);
+            if (removed != null) {
+                unindex(appointmentId, removed.getDate());
+            }
+            return;
+        }
+        if (snapshot.getDate() != null && snapshot.getDate().isBefore(retentionCutoff())) {
+            return;
+        }
+
+        timelines.compute(appointmentId, (id, current) -> {
+            if (current != null && current.getVersion() >= snapshot.getVersion()) {
+                return current;
+            }
+            if (current != null && current.getDate() != null && !current.getDate().equals(snapshot.getDate())) {
+                unindex(id, current.getDate());
+            }
+            if (snapshot.getDate() != null) {
+                idsByDate.computeIfAbsent(snapshot.getDate(), d -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            return snapshot;
+        });
+    }
+
+    public AppointmentTimeline getTimeline(String appointmentId) {
+        AppointmentTimeline timeline = timelines.get(appointmentId);
+        if (timeline == null) {
+            throw new RuntimeException("No timeline for appointment " + appointmentId);
+        }
+        return timeline;
+    }
+
+    /**
+     * Appointments on the given date ordered by time, optionally for one doctor
+     */
+    public List<AppointmentTimeline> getBoard(LocalDate date, String doctorId) {
+        Set<String> ids = idsByDate.getOrDefault(date, Set.of());
+        List<AppointmentTimeline> board = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            AppointmentTimeline timeline = timelines.get(id);
+            if (timeline != null && (doctorId == null || doctorId.equals(timeline.getDoctorId()))) {
+                board.add(timeline);
+            }
+        }
+        board.sort(Comparator.comparing(AppointmentTimeline::getTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        return board;
+    }
+
+    public int size() {
+        return timelines.size();
+    }
+
+    /**
+     * Drop appointments older than the retention window from memory (the topic keeps them)
+     */
+    @Scheduled(cron = "${appointments.timeline.purge-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        LocalDate cutoff = retentionCutoff();
+        int removed = 0;
+        for (LocalDate date : List.copyOf(idsByDate.keySet())) {
+            if (date.isBefore(cutoff)) {
+                Set<String> ids = idsByDate.remove(date);
+                if (ids != null) {
+                    ids.forEach(timelines::remove);
+                    removed += ids.size();
+                }
+            }
+        }
+        if (removed > 0) {
+            log.info("Evicted {} appointment timelines older than {}", removed, cutoff);
+        }
+    }
+
+    private void unindex(String appointmentId, LocalDate date) {
+        if (date == null) {
+            return;
+        }
+        Set<String> ids = idsByDate.get(date);
+        if (ids != null) {
+            ids.remove(appointmentId);
+        }
+    }
+
+    private LocalDate retentionCutoff() {
+        return LocalDate.now().minusDays(retentionDays);
+    }
+
+    private static <T> T orElse(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+}
@@ -13,11 +13,18 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.*;
+import java.util.stream.IntStream;
 
 @Service
 @RequiredArgsConstructor
 public class AssistantService {
+    // Half-hour slots between 09:00 and 17:00 offered when rescheduling
+    private static final List<LocalTime> RESCHEDULE_SLOTS = IntStream.range(0, 16)
+            .mapToObj(i -> LocalTime.of(9, 0).plusMinutes(30L * i))
+            .toList();
+
     private final AssistantRepository assistantRepository;
     private final AssistantRunRepository assistantRunRepository;
     private final AppointmentRepository appointmentRepository;
@@ -93,7 +100,7 @@ public class AssistantService {
                     Map<String, Object> item = new HashMap<>();
                     item.put("id", apt.getId());
                     item.put("date", apt.getDate().toString());
-                    item.put("time", apt.getTime());
+                    item.put("time", AppointmentService.formatTime(apt.getTime()));
                     item.put("patientName", apt.getPatient() != null ? apt.getPatient().getName() : "Unknown");
                     item.put("doctorName", apt.getDoctor() != null ? apt.getDoctor().getName() : "Unknown");
                     upcoming.add(item);
@@ -184,7 +191,7 @@ public class AssistantService {
             item.put("phone", apt.getPatient().getPhone());
             item.put("doctorName", apt.getDoctor().getName());
             item.put("date", apt.getDate().toString());
-            item.put("time", apt.getTime());
+            item.put("time", AppointmentService.formatTime(apt.getTime()));
             items.add(item);
         }
 
@@ -208,33 +215,32 @@ public class AssistantService {
 
         for (Appointment apt : cancelled) {
             List<Map<String, Object>> dayOptions = new ArrayList<>();
-            
+
+            // One range query for the whole week instead of one per day
+            Map<LocalDate, Set<LocalTime>> occupiedByDay = new HashMap<>();
+            for (Appointment ap : appointmentRepository.findByDoctorIdAndDateBetweenOrderByDateAscTimeAsc(
+                    apt.getDoctorId(), today.plusDays(1), today.plusDays(7))) {
+                if (AppointmentBookingEngine.holdsSlot(ap.getStatus())) {
+                    occupiedByDay.computeIfAbsent(ap.getDate(), d -> new HashSet<>()).add(ap.getTime());
+                }
+            }
+
             for (int offset = 1; offset <= 7; offset++) {
                 LocalDate day = today.plusDays(offset);
-                List<Appointment> appts = appointmentRepository.findByDoctorIdAndDate(apt.getDoctorId(), day);
-                Set<String> occupied = new HashSet<>();
-                
-                for (Appointment ap : appts) {
-                    if (ap.getStatus() != null && !ap.getStatus().equals("cancelled")) {
-                        occupied.add(ap.getTime());
-                    }
-                }
+                Set<LocalTime> occupied = occupiedByDay.getOrDefault(day, Set.of());
 
                 List<String> slots = new ArrayList<>();
-                for (int hour = 9; hour < 17; hour++) {
-                    for (int min = 0; min < 60; min += 30) {
-                        String hhmm = String.format("%02d:%02d", hour, min);
-                        if (!occupied.contains(hhmm)) {
-                            slots.add(hhmm);
-                        }
+                for (LocalTime slot : RESCHEDULE_SLOTS) {
+                    if (!occupied.contains(slot)) {
+                        slots.add(AppointmentService.formatTime(slot));
+                        if (slots.size() >= 6) break;
                     }
-                    if (slots.size() >= 6) break;
                 }
 
                 if (!slots.isEmpty()) {
                     Map<String, Object> dayOption = new HashMap<>();
                     dayOption.put("date", day.toString());
-                    dayOption.put("slots", slots.subList(0, Math.min(6, slots.size())));
+                    dayOption.put("slots", slots);
                     dayOptions.add(dayOption);
                 }
             }
@@ -0,0 +1,17 @@
+package com.example.demo.service;
+
+/**
+ * The request lost to the current state of the data (slot taken, stock gone, row changed
+ * since the client read it). Answered with 409 so the client reloads instead of retrying
+ * the same request.
+ */
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+
+    public ConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.repository.ConversationRepository;
+import com.example.demo.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Distributes unassigned SMS conversations across online agents.
+ *
+ * Each online agent has a load counter (open conversations held). A new conversation
+ * goes to the least-loaded agent below max-per-agent, reserved on the counter before
+ * the conditional UPDATE so concurrent assignments spread out. Conversations that could
+ * not be placed stay unassigned and are picked up by the periodic rebalance, which also
+ * lets the least-loaded agent steal conversations the busiest agent was given
+ * automatically but has not answered yet.
+ *
+ * Presence is stored on the users row, so every instance sees the same online agents;
+ * loads are re-read from the database on each rebalance to correct drift between instances.
+ */
+@Service
+@Slf4j
+public class ConversationAssignmentEngine {
+
+    private final ConversationRepository conversationRepository;
+    private final UserRepository userRepository;
+    private final Executor executor;
+
+    private final Map<String, AgentState> agents = new ConcurrentHashMap<>();
+    // Conversations known to have an agent, so repeat inbound SMS skip the assignment attempt
+    private final Cache<String, Boolean> assigned = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    @Value("${conversations.assignment.max-per-agent:10}")
+    private int maxPerAgent = 10;
+
+    @Value("${conversations.assignment.presence-ttl-ms:90000}")
+    private long presenceTtlMs = 90000;
+
+    @Value("${conversations.assignment.steal-threshold:2}")
+    private int stealThreshold = 2;
+
+    public ConversationAssignmentEngine(ConversationRepository conversationRepository,
+                                        UserRepository userRepository,
+                                        @Qualifier("databaseExecutor") Executor executor) {
+        this.conversationRepository = conversationRepository;
+        this.userRepository = userRepository;
+        this.executor = executor;
+    }
+
+    /**
+     * Agent heartbeat: marks the agent online and gives it work from the backlog
+     */
+    public void heartbeat(String agentId) {
+        if (userRepository.touchAgentPresence(agentId, LocalDateTime.now()) == 0) {
+            throw new RuntimeException("Only agents can go online");
+        }
+        if (!agents.containsKey(agentId)
+                && agents.putIfAbsent(agentId, new AgentState(openCount(agentId))) == null) {
+            submit(this::drainBacklog);
+        }
+    }
+
+    /**
+     * Agent went offline: conversations it received automatically and never answered
+     * go back to the pool
+     */
+    public void goOffline(String agentId) {
+        userRepository.touchAgentPresence(agentId, null);
+        AgentState state = agents.remove(agentId);
+        if (state == null) {
+            return;
+        }
+        releaseUntouched(agentId, state, LocalDateTime.now());
+        submit(this::drainBacklog);
+    }
+
+    /**
+     * Inbound message for a conversation: assign it in the background if it has no agent
+     */
+    public void onInboundMessage(String conversationId) {
+        if (assigned.getIfPresent(conversationId) == null) {
+            submit(() -> assignIfUnassigned(conversationId));
+        }
+    }
+
+    /**
+     * Someone answered or claimed the conversation: it is no longer eligible for stealing.
+     * The flag on the row is what counts; the local lists only pick candidates.
+     */
+    public void onTouched(String conversationId) {
+        conversationRepository.markAnswered(conversationId);
+        agents.values().forEach(state -> state.untouched.remove(conversationId));
+    }
+
+    /**
+     * Conversation changed hands outside the engine (manual claim, reassignment, close)
+     */
+    public void onMoved(String conversationId, String fromAgentId, String toAgentId) {
+        AgentState from = fromAgentId != null ? agents.get(fromAgentId) : null;
+        if (from != null) {
+            from.untouched.remove(conversationId);
+            from.load.updateAndGet(l -> Math.max(0, l - 1));
+        }
+        AgentState to = toAgentId != null ? agents.get(toAgentId) : null;
+        if (to != null) {
+            to.load.incrementAndGet();
+            assigned.put(conversationId, Boolean.TRUE);
+        } else {
+            assigned.invalidate(conversationId);
+        }
+        if (from != null) {
+            submit(this::drainBacklog);
+        }
+    }
+
+    /**
+     * Online agents with their current load, least loaded first
+     */
+    public List<Map<String, Object>> getOnlineAgents() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        agents.forEach((agentId, state) -> result.add(Map.of(
+                "agentId", agentId,
+                "load", state.load.get(),
+                "unanswered", state.untouched.size())));
+        result.sort(Comparator.comparingInt(a -> (Integer) a.get("load")));
+        return result;
+    }
+
+    public boolean isOnline(String agentId) {
+        return agents.containsKey(agentId);
+    }
+
+    /**
+     * Sync presence and loads with the database, place backlog, then steal from the busiest agent
+     */
+    @Scheduled(fixedDelayString = "${conversations.assignment.rebalance-interval-ms:10000}")
+    public void rebalance() {
+        try {
+            syncFromDatabase();
+            drainBacklog();
+            stealWork();
+        } catch (Exception e) {
+            log.error("Conversation rebalance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void syncFromDatabase() {
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> online = new HashSet<>(userRepository.findOnlineAgentIds(
+                now.minus(Duration.ofMillis(presenceTtlMs))));
+        // Agents whose heartbeat lapsed are treated like goOffline
+        for (String agentId : List.copyOf(agents.keySet())) {
+            if (!online.contains(agentId)) {
+                AgentState state = agents.remove(agentId);
+                if (state != null) {
+                    releaseUntouched(agentId, state, now);
+                }
+            }
+        }
+
+        Map<String, Integer> loads = new HashMap<>();
+        for (Object[] row : conversationRepository.countOpenByAgent()) {
+            loads.put((String) row[0], ((Number) row[1]).intValue());
+        }
+        for (String agentId : online) {
+            AgentState state = agents.computeIfAbsent(agentId, id -> new AgentState(0));
+            state.load.set(loads.getOrDefault(agentId, 0));
+        }
+    }
+
+    // Conversations the agent received automatically and never answered go back to the pool
+    private void releaseUntouched(String agentId, AgentState state, LocalDateTime now) {
+        for (String conversationId : state.untouched) {
+            if (conversationRepository.reassignUnanswered(conversationId, agentId, null, now) > 0) {
+                assigned.invalidate(conversationId);
+            }
+        }
+    }
+
+    // Background work is best effort: when the executor is saturated the next rebalance places it
+    private void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("Assignment task deferred to rebalance: {}", e.getMessage());
+        }
+    }
+
+    private void drainBacklog() {
+        if (agents.isEmpty()) {
+            return;
+        }
+        for (String conversationId : conversationRepository.findUnassignedOpenIds(PageRequest.of(0, 100))) {
+            if (!assignIfUnassigned(conversationId)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if no agent had capacity
+     */
+    private boolean assignIfUnassigned(String conversationId) {
+        Map.Entry<String, AgentState> agent = reserveLeastLoaded();
+        if (agent == null) {
+            return false;
+        }
+        AgentState state = agent.getValue();
+        if (conversationRepository.assignIfUnassigned(conversationId, agent.getKey(), LocalDateTime.now()) > 0) {
+            state.untouched.add(conversationId);
+            log.debug("Assigned conversation {} to agent {} (load {})", conversationId, agent.getKey(), state.load.get());
+        } else {
+            state.load.decrementAndGet();
+        }
+        assigned.put(conversationId, Boolean.TRUE);
+        return true;
+    }
+
+    // Pick the least-loaded agent with capacity and take a slot on its counter
+    private Map.Entry<String, AgentState> reserveLeastLoaded() {
+        while (true) {
+            Map.Entry<String, AgentState> best = null;
+            int bestLoad = Integer.MAX_VALUE;
+            for (Map.Entry<String, AgentState> entry : agents.entrySet()) {
+                int load = entry.getValue().load.get();
+                if (load < maxPerAgent && load < bestLoad) {
+                    best = entry;
+                    bestLoad = load;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            if (best.getValue().load.compareAndSet(bestLoad, bestLoad + 1)) {
+                return best;
+            }
+        }
+    }
+
+    private void stealWork() {
+        LocalDateTime now = LocalDateTime.now();
+        while (agents.size() > 1) {
+            Map.Entry<String, AgentState> busiest = null;
+            Map.Entry<String, AgentState> idlest = null;
+            for (Map.Entry<String, AgentState> entry : agents.entrySet()) {
+                int load = entry.getValue().load.get();
+                if (!entry.getValue().untouched.isEmpty()
+                        && (busiest == null || load > busiest.getValue().load.get())) {
+                    busiest = entry;
+                }
+                if (idlest == null || load < idlest.getValue().load.get()) {
+                    idlest = entry;
+                }
+            }
+            if (busiest == null || busiest == idlest
+                    || busiest.getValue().load.get() - idlest.getValue().load.get() < stealThreshold) {
+                return;
+            }
+            // Newest unanswered conversation: the oldest ones are most likely being read already
+            String conversationId = busiest.getValue().untouched.pollLast();
+            if (conversationId == null) {
+                continue;
+            }
+            if (conversationRepository.reassignUnanswered(conversationId, busiest.getKey(), idlest.getKey(), now) > 0) {
+                busiest.getValue().load.decrementAndGet();
+                idlest.getValue().load.incrementAndGet();
+                idlest.getValue().untouched.add(conversationId);
+                log.debug("Moved conversation {} from agent {} to {}", conversationId, busiest.getKey(), idlest.getKey());
+            }
+        }
+    }
+
+    private int openCount(String agentId) {
+        return (int) conversationRepository.countByAgentIdAndStatus(agentId, "open");
+    }
+
+    private static final class AgentState {
+        private final AtomicInteger load;
+        private final ConcurrentLinkedDeque<String> untouched = new ConcurrentLinkedDeque<>();
+
+        private AgentState(int load) {
+            this.load = new AtomicInteger(load);
+        }
+    }
+}
@@ -1,24 +1,79 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.ConversationSummary;
 import com.example.demo.entity.Conversation;
 import com.example.demo.entity.Message;
+import com.example.demo.entity.User;
+import com.example.demo.repository.ConversationInboxRepository;
 import com.example.demo.repository.ConversationRepository;
 import com.example.demo.repository.MessageRepository;
 import com.example.demo.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
 public class  ConversationService {
+    public static final String ALREADY_ASSIGNED_MESSAGE = "Conversation is already assigned to another agent";
+    public static final String CONCURRENT_UPDATE_MESSAGE = "Conversation was changed by someone else, reload and retry";
+
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final ConversationInboxRepository conversationInboxRepository;
+    private final MessageBatchWriter messageBatchWriter;
+    private final ConversationStreamService conversationStreamService;
+    private final ConversationAssignmentEngine assignmentEngine;
+
+    // Latest conversation id per customer phone for the inbound webhook. Entries expire so
+    // conversations created or deleted on another instance are picked up within minutes.
+    private final Cache<String, String> conversationIdsByPhone = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    @Value("${messages.batch.write-timeout-ms:5000}")
+    private long messageWriteTimeoutMs = 5000;
 
     public Conversation createConversation(String userId, String agentId, String customerPhone) {
+        Conversation conversation = saveNewConversation(userId, agentId, customerPhone);
+        if (customerPhone != null) {
+            conversationIdsByPhone.put(customerPhone, conversation.getId());
+        }
+        return conversation;
+    }
+
+    /**
+     * Id of the latest open conversation for the phone, creating one if there is none.
+     * Concurrent calls for the same phone share one lookup, so a burst of SMS from a new
+     * number opens a single conversation on this instance.
+     */
+    public String resolveConversationId(String customerPhone) {
+        return conversationIdsByPhone.get(customerPhone, phone -> conversationRepository
+                .findFirstByCustomerPhoneAndStatusOrderByCreatedAtDesc(phone, "open")
+                .map(Conversation::getId)
+                .orElseGet(() -> saveNewConversation(null, null, phone).getId()));
+    }
+
+    private Conversation saveNewConversation(String userId, String agentId, String customerPhone) {
         Conversation conversation = new Conversation();
         conversation.setId(UUID.randomUUID().toString());
         conversation.setUserId(userId);
@@ -34,32 +89,130 @@ public class  ConversationService {
         return conversationRepository.findFirstByCustomerPhoneOrderByCreatedAtDesc(customerPhone);
     }
 
-    public List<Conversation> getConversationsByUser(String userId, String userRole) {
+    /**
+     * Inbox page, most recent activity first: admins see everything, agents their assigned
+     * and the unassigned conversations, other users their own
+     */
+    public Page<ConversationSummary> getConversationsByUser(String userId, String userRole, Pageable pageable) {
+        ConversationInboxRepository.Scope scope;
         if ("admin".equals(userRole)) {
-            return conversationRepository.findAll();
+            scope = ConversationInboxRepository.Scope.ALL;
         } else if ("agent".equals(userRole)) {
-            // Agent sees assigned or unassigned conversations
-            List<Conversation> assigned = conversationRepository.findByAgentId(userId);
-            List<Conversation> unassigned = conversationRepository.findByAgentId(null);
-            assigned.addAll(unassigned);
-            return assigned;
+            scope = ConversationInboxRepository.Scope.AGENT;
         } else {
-            return conversationRepository.findByUserId(userId);
+            scope = ConversationInboxRepository.Scope.USER;
         }
+        return conversationInboxRepository.findInbox(scope, userId, pageable);
+    }
+
+    /**
+     * Clear the unread count: called when an agent opens the conversation
+     */
+    public void markReadByAgent(String conversationId) {
+        conversationRepository.markAgentRead(conversationId, LocalDateTime.now());
     }
 
-    public Conversation assignAgent(String conversationId, String agentId) {
-        Conversation conversation = conversationRepository.findById(conversationId)
+    /**
+     * Agent claims a conversation for themselves. Only one agent can win: the update is
+     * conditional on the conversation being unassigned (or already theirs).
+     */
+    public Conversation claimConversation(String conversationId, String agentId) {
+        Conversation current = findConversation(conversationId);
+        if (conversationRepository.claim(conversationId, agentId, LocalDateTime.now()) == 0) {
+            throw new ConflictException(ALREADY_ASSIGNED_MESSAGE);
+        }
+        if (!agentId.equals(current.getAgentId())) {
+            assignmentEngine.onMoved(conversationId, current.getAgentId(), agentId);
+        }
+        assignmentEngine.onTouched(conversationId);
+        return findConversation(conversationId);
+    }
+
+    /**
+     * Admin assignment. With the version the client last saw, the change only applies if
+     * nobody modified the conversation since; without it the admin overrides.
+     */
+    public Conversation assignAgent(String conversationId, String agentId, Long expectedVersion) {
+        Conversation current = findConversation(conversationId);
+        long version = expectedVersion != null ? expectedVersion : current.getVersion();
+        if (conversationRepository.assignAtVersion(conversationId, agentId, version, LocalDateTime.now()) == 0) {
+            throw new ConflictException(CONCURRENT_UPDATE_MESSAGE);
+        }
+        assignmentEngine.onMoved(conversationId, current.getAgentId(), agentId);
+        return findConversation(conversationId);
+    }
+
+    public Conversation closeConversation(String conversationId) {
+        Conversation current = findConversation(conversationId);
+        if (conversationRepository.close(conversationId, LocalDateTime.now()) > 0) {
+            assignmentEngine.onMoved(conversationId, current.getAgentId(), null);
+            // The customer's next SMS opens a new conversation
+            conversationIdsByPhone.asMap().values().remove(conversationId);
+        }
+        return findConversation(conversationId);
+    }
+
+    /**
+     * All agents with their presence and current load
+     */
+    public List<Map<String, Object>> listAgents() {
+        Map<String, Integer> loads = new HashMap<>();
+        for (Map<String, Object> online : assignmentEngine.getOnlineAgents()) {
+            loads.put((String) online.get("agentId"), (Integer) online.get("load"));
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (User agent : userRepository.findByRole("agent")) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("id", agent.getId());
+            entry.put("name", agent.getName());
+            entry.put("email", agent.getEmail());
+            entry.put("online", loads.containsKey(agent.getId()));
+            entry.put("load", loads.getOrDefault(agent.getId(), 0));
+            entry.put("lastSeenAt", agent.getLastSeenAt());
+            result.add(entry);
+        }
+        return result;
+    }
+
+    private Conversation findConversation(String conversationId) {
+        return conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new RuntimeException("Conversation not found"));
-        conversation.setAgentId(agentId);
-        return conversationRepository.save(conversation);
     }
 
     public void deleteConversation(String id) {
         conversationRepository.deleteById(id);
+        conversationIdsByPhone.asMap().values().remove(id);
     }
 
+    /**
+     * Store a message and wait until it is committed. The insert is grouped with
+     * concurrent messages from other conversations by the batch writer.
+     */
     public Message addMessage(String conversationId, String senderType, String direction, String body, String fromNumber, String toNumber) {
+        try {
+            return appendMessage(conversationId, senderType, direction, body, fromNumber, toNumber)
+                    .get(messageWriteTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while saving message", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to save message: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Timed out saving message", e);
+        }
+    }
+
+    /**
+     * Queue a message for the batch writer; the future completes once it is committed,
+     * at which point the message is also pushed to the conversation's stream subscribers
+     */
+    public CompletableFuture<Message> appendMessage(String conversationId, String senderType, String direction, String body, String fromNumber, String toNumber) {
+        CompletableFuture<Message> stored = messageBatchWriter.append(newMessage(conversationId, senderType, direction, body, fromNumber, toNumber));
+        stored.thenAccept(conversationStreamService::publish);
+        return stored;
+    }
+
+    private Message newMessage(String conversationId, String senderType, String direction, String body, String fromNumber, String toNumber) {
         Message message = new Message();
         message.setId(UUID.randomUUID().toString());
         message.setConversationId(conversationId);
@@ -68,11 +221,33 @@ public class  ConversationService {
         message.setBody(body);
         message.setFromNumber(fromNumber);
         message.setToNumber(toNumber);
-        
-        return messageRepository.save(message);
+        return message;
     }
 
     public List<Message> getConversationMessages(String conversationId) {
         return messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
     }
+
+    /**
+     * Messages created after the given time, or the whole history if it is null
+     */
+    public List<Message> getConversationMessages(String conversationId, LocalDateTime since) {
+        if (since == null) {
+            return getConversationMessages(conversationId);
+        }
+        return messageRepository.findByConversationIdAndCreatedAtAfterOrderByCreatedAtAsc(conversationId, since);
+    }
+
+    /**
+     * Stream new messages of the conversation. With a last seen message id (SSE
+     * Last-Event-ID) or a since time, the messages after it are replayed first.
+     */
+    public SseEmitter streamMessages(String conversationId, String lastEventId, LocalDateTime since) {
+        LocalDateTime from = lastEventId != null && !lastEventId.isBlank()
+                ? messageRepository.findById(lastEventId).map(Message::getCreatedAt).orElse(since)
+                : since;
+        // The backlog is loaded after the stream is registered, so nothing committed in between is lost
+        return conversationStreamService.subscribe(conversationId,
+                () -> from != null ? getConversationMessages(conversationId, from) : List.of());
+    }
 }
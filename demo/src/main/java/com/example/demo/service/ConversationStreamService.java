@@ -0,0 +1,235 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.demo.dto.MessageDTO;
+import com.example.demo.entity.Message;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Server-sent event subscriptions for conversations. Messages are pushed to the
+ * subscribers of their conversation once committed. Each subscriber has its own bounded
+ * queue drained by a small sender pool, one drain at a time per subscriber, so events
+ * keep their commit order and a slow client never holds up the message writer or other
+ * clients. A subscriber whose queue fills up is dropped; it reconnects with
+ * Last-Event-ID and receives what it missed from the database, as after any disconnect.
+ * Subscriptions are local to the instance.
+ */
+@Service
+@Slf4j
+public class ConversationStreamService implements DisposableBean {
+
+    private static final Object HEARTBEAT = new Object();
+    private static final Object CLOSE = new Object();
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+
+    @Value("${conversations.stream.timeout-ms:1800000}")
+    private long timeoutMs = 1800000;
+
+    @Value("${conversations.stream.max-queued:256}")
+    private int maxQueued = 256;
+
+    public ConversationStreamService(@Value("${conversations.stream.sender-threads:4}") int senderThreads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "conversation-stream-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Subscribe to a conversation, then replay the backlog. The subscriber is registered
+     * before the backlog is loaded, so nothing committed in between is missed; live
+     * messages are held until the backlog is queued, and ones already in the backlog are
+     * skipped. Clients still drop duplicates by event id across reconnects.
+     */
+    public SseEmitter subscribe(String conversationId, Supplier<List<Message>> backlog) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(conversationId, emitter);
+        subscribers.computeIfAbsent(conversationId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        Runnable remove = () -> unsubscribe(subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        try {
+            subscriber.replay(backlog.get());
+        } catch (RuntimeException e) {
+            unsubscribe(subscriber);
+            throw e;
+        }
+        return emitter;
+    }
+
+    /**
+     * Queue a committed message for the conversation's subscribers
+     */
+    public void publish(Message message) {
+        Set<Subscriber> conversationSubscribers = subscribers.get(message.getConversationId());
+        if (conversationSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : conversationSubscribers) {
+            subscriber.offer(message);
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Comment line to idle subscribers: keeps proxies from closing idle streams and
+     * detects clients that went away without closing
+     */
+    @Scheduled(fixedDelayString = "${conversations.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(conversationSubscribers -> conversationSubscribers.forEach(Subscriber::heartbeat));
+    }
+
+    @Override
+    public void destroy() {
+        sender.shutdownNow();
+        subscribers.values().forEach(conversationSubscribers ->
+                conversationSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.conversationId, (id, conversationSubscribers) -> {
+            conversationSubscribers.remove(subscriber);
+            return conversationSubscribers.isEmpty() ? null : conversationSubscribers;
+        });
+    }
+
+    private static MessageDTO toDTO(Message message) {
+        return new MessageDTO(message.getId(), message.getConversationId(), message.getSenderType(),
+                message.getDirection(), message.getBody(), message.getFromNumber(), message.getToNumber(),
+                message.getCreatedAt());
+    }
+
+    /**
+     * One stream. Producers only touch the queue under the lock; the emitter is written
+     * by at most one sender task at a time.
+     */
+    private final class Subscriber {
+        private final String conversationId;
+        private final SseEmitter emitter;
+        private final ArrayDeque<Object> queue = new ArrayDeque<>();
+        private boolean replayed;
+        private boolean draining;
+        private boolean closed;
+
+        Subscriber(String conversationId, SseEmitter emitter) {
+            this.conversationId = conversationId;
+            this.emitter = emitter;
+        }
+
+        synchronized void replay(List<Message> backlog) {
+            Set<String> ids = new HashSet<>();
+            for (Message message : backlog) {
+                ids.add(message.getId());
+            }
+            queue.removeIf(item -> item instanceof Message message && ids.contains(message.getId()));
+            for (int i = backlog.size() - 1; i >= 0; i--) {
+                queue.addFirst(backlog.get(i));
+            }
+            replayed = true;
+            scheduleDrain();
+        }
+
+        synchronized void offer(Message message) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= maxQueued) {
+                log.debug("Dropping slow stream subscriber for conversation {} ({} events queued)",
+                        conversationId, queue.size());
+                close();
+                return;
+            }
+            queue.add(message);
+            scheduleDrain();
+        }
+
+        synchronized void heartbeat() {
+            if (!closed && replayed && queue.isEmpty()) {
+                queue.add(HEARTBEAT);
+                scheduleDrain();
+            }
+        }
+
+        // Completing the emitter waits for an in-flight write, so leave it to the sender task
+        private void close() {
+            closed = true;
+            queue.clear();
+            queue.add(CLOSE);
+            unsubscribe(this);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (replayed && !draining && !queue.isEmpty()) {
+                draining = true;
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Object item;
+                synchronized (this) {
+                    item = queue.poll();
+                    if (item == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                if (item == CLOSE) {
+                    emitter.complete();
+                    continue;
+                }
+                try {
+                    if (item == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    } else {
+                        Message message = (Message) item;
+                        emitter.send(SseEmitter.event()
+                                .id(message.getId())
+                                .name("message")
+                                .data(toDTO(message)));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Dropping stream subscriber for conversation {}: {}", conversationId, e.getMessage());
+                    synchronized (this) {
+                        closed = true;
+                        queue.clear();
+                        draining = false;
+                    }
+                    unsubscribe(this);
+                    return;
+                }
+            }
+        }
+    }
+}
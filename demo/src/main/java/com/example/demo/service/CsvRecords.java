@@ -0,0 +1,163 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reading and writing for catalogue import/export: quoted fields,
+ * doubled quotes and line breaks inside quotes. Records are read one at a time so
+ * memory does not grow with the file; a record longer than the cap (typically an
+ * unclosed quote swallowing the rest of the file) is rejected and reading resumes on
+ * the next physical line.
+ */
+final class CsvRecords {
+
+    static final int DEFAULT_MAX_RECORD_CHARS = 64 * 1024;
+
+    private final Reader reader;
+    private final int maxRecordChars;
+    private int peeked = -2;
+    private long line = 1;
+    private long recordLine;
+
+    CsvRecords(Reader reader) {
+        this(reader, DEFAULT_MAX_RECORD_CHARS);
+    }
+
+    CsvRecords(Reader reader, int maxRecordChars) {
+        this.reader = reader;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    /**
+     * Physical line the last record returned by {@link #next()} started on
+     */
+    long line() {
+        return recordLine;
+    }
+
+    /**
+     * Next record, or null at end of input. Blank lines are skipped.
+     *
+     * @throws RecordTooLongException if the record exceeds the cap; the next call
+     *         continues after the physical line the reader stopped on
+     */
+    List<String> next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int length = 0;
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                if (!any && field.isEmpty() && fields.isEmpty()) {
+                    return null;
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            if (!any) {
+                recordLine = line;
+            }
+            any = true;
+            if (++length > maxRecordChars) {
+                skipLine(c);
+                throw new RecordTooLongException(recordLine, "Record longer than " + maxRecordChars
+                        + " characters" + (quoted ? " (unclosed quote?)" : ""));
+            }
+            if (quoted) {
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                line++;
+                if (fields.isEmpty() && field.isEmpty()) {
+                    any = false;
+                    continue;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    // Discard up to and including the end of the physical line holding c
+    private void skipLine(int c) throws IOException {
+        while (c != -1 && c != '\n' && c != '\r') {
+            c = read();
+        }
+        if (c == '\r' && peek() == '\n') {
+            read();
+        }
+        if (c != -1) {
+            line++;
+        }
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+
+    static void appendField(StringBuilder out, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            out.append(text);
+            return;
+        }
+        out.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * A record over the length cap, reported against the line it started on
+     */
+    static final class RecordTooLongException extends IOException {
+        private final long line;
+
+        RecordTooLongException(long line, String message) {
+            super(message);
+            this.line = line;
+        }
+
+        long line() {
+            return line;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entity.User;
+import com.example.demo.repository.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * OTP store kept on the users row (phone_otp_* columns). Survives restarts and is shared
+ * by every backend instance, at the cost of a row write per send and per attempt.
+ * All instances must then share otp.hmac-secret.
+ */
+@Component
+@ConditionalOnProperty(name = "otp.store", havingValue = "database")
+@RequiredArgsConstructor
+public class DatabaseOtpStore implements OtpStore {
+
+    private final UserRepository userRepository;
+
+    @Override
+    public boolean shared() {
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public void save(String userId, PendingOtp otp) {
+        User user = findUser(userId);
+        user.setPhone(otp.phone());
+        user.setPhoneOtpHash(otp.codeHash());
+        user.setPhoneOtpExpires(otp.expiresAt());
+        user.setPhoneOtpAttempts(0);
+        user.setPhoneOtpLastSent(otp.sentAt());
+    }
+
+    @Override
+    @Transactional
+    public Attempt verify(String userId, String codeHash, int maxAttempts) {
+        // Row lock so concurrent attempts are counted one after another
+        User user = userRepository.findByIdForUpdate(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (user.getPhoneOtpHash() == null || user.getPhoneOtpExpires() == null) {
+            return Attempt.of(Outcome.NOT_FOUND);
+        }
+        if (LocalDateTime.now().isAfter(user.getPhoneOtpExpires())) {
+            clear(user);
+            return Attempt.of(Outcome.EXPIRED);
+        }
+        int attempts = user.getPhoneOtpAttempts() != null ? user.getPhoneOtpAttempts() : 0;
+        if (attempts >= maxAttempts) {
+            clear(user);
+            return Attempt.of(Outcome.TOO_MANY_ATTEMPTS);
+        }
+        if (!OtpStore.hashesMatch(user.getPhoneOtpHash(), codeHash)) {
+            user.setPhoneOtpAttempts(attempts + 1);
+            return Attempt.of(Outcome.INCORRECT);
+        }
+        clear(user);
+        user.setPhoneOtpLastSent(null);
+        return new Attempt(Outcome.VERIFIED, user.getPhone());
+    }
+
+    @Override
+    @Transactional
+    public void remove(String userId) {
+        userRepository.findById(userId).ifPresent(user -> {
+            clear(user);
+            user.setPhoneOtpLastSent(null);
+        });
+    }
+
+    private User findUser(String userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    private static void clear(User user) {
+        user.setPhoneOtpHash(null);
+        user.setPhoneOtpExpires(null);
+        user.setPhoneOtpAttempts(0);
+    }
+}
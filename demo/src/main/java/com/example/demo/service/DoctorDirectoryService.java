@@ -0,0 +1,118 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.DoctorDirectoryEntry;
+import com.example.demo.repository.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory doctor directory behind the public GET /api/doctors listing.
+ *
+ * Holds an immutable snapshot that is swapped atomically on refresh. User writes on
+ * this instance refresh it straight away; the periodic refresh picks up writes made
+ * through the other backend instances.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DoctorDirectoryService {
+    private final UserRepository userRepository;
+
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(List<DoctorDirectoryEntry> byName,
+                            String[] lowerNames,
+                            Map<String, List<DoctorDirectoryEntry>> bySpecialization) {
+    }
+
+    /**
+     * Doctors ordered by name, optionally filtered by specialization (exact, case-insensitive)
+     * and name prefix (case-insensitive)
+     */
+    public List<DoctorDirectoryEntry> find(String specialization, String namePrefix) {
+        Snapshot current = snapshot != null ? snapshot : load();
+
+        List<DoctorDirectoryEntry> candidates = specialization == null || specialization.isBlank()
+                ? current.byName()
+                : current.bySpecialization().getOrDefault(normalize(specialization), List.of());
+        if (namePrefix == null || namePrefix.isBlank()) {
+            return candidates;
+        }
+
+        String prefix = normalize(namePrefix);
+        if (candidates == current.byName()) {
+            // Sorted names: binary search to the first match, then scan while the prefix holds
+            int i = Arrays.binarySearch(current.lowerNames(), prefix);
+            int from = i >= 0 ? i : -i - 1;
+            while (from > 0 && current.lowerNames()[from - 1].startsWith(prefix)) {
+                from--;
+            }
+            int to = from;
+            while (to < current.lowerNames().length && current.lowerNames()[to].startsWith(prefix)) {
+                to++;
+            }
+            return current.byName().subList(from, to);
+        }
+        List<DoctorDirectoryEntry> matches = new ArrayList<>();
+        for (DoctorDirectoryEntry entry : candidates) {
+            if (normalize(entry.getName()).startsWith(prefix)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
+    public boolean contains(String userId) {
+        Snapshot current = snapshot;
+        return current != null && current.byName().stream().anyMatch(e -> e.getId().equals(userId));
+    }
+
+    /**
+     * Reload the directory from the database (id, name, specialization, image only)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${doctors.directory.refresh-interval-ms:60000}",
+            initialDelayString = "${doctors.directory.refresh-interval-ms:60000}")
+    public void refresh() {
+        load();
+    }
+
+    private synchronized Snapshot load() {
+        List<DoctorDirectoryEntry> entries = new ArrayList<>(userRepository.findDoctorDirectory());
+        entries.sort(Comparator.comparing(e -> normalize(e.getName())));
+
+        String[] lowerNames = new String[entries.size()];
+        Map<String, List<DoctorDirectoryEntry>> bySpecialization = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            DoctorDirectoryEntry entry = entries.get(i);
+            lowerNames[i] = normalize(entry.getName());
+            if (entry.getSpecialization() != null) {
+                bySpecialization.computeIfAbsent(normalize(entry.getSpecialization()), k -> new ArrayList<>()).add(entry);
+            }
+        }
+        bySpecialization.replaceAll((k, v) -> List.copyOf(v));
+
+        Snapshot refreshed = new Snapshot(List.copyOf(entries), lowerNames, Map.copyOf(bySpecialization));
+        snapshot = refreshed;
+        log.debug("Doctor directory refreshed: {} doctors", entries.size());
+        return refreshed;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.service;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for short-lived timeouts.
+ *
+ * Scheduling is a lock-free O(1) append to the bucket of the deadline tick. A single
+ * caller advances the wheel and fires every entry whose deadline has passed. Entries
+ * further out than one rotation stay in their bucket until their round comes up.
+ * There is no cancel: callers check on expiry whether the item is still current.
+ */
+class HashedTimingWheel<T> {
+
+    private final long tickMs;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout<T>>[] buckets;
+    private volatile long lastTick;
+
+    @SuppressWarnings("unchecked")
+    HashedTimingWheel(long tickMs, int wheelSize, long nowMs) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+        }
+        this.tickMs = tickMs;
+        this.mask = wheelSize - 1;
+        this.buckets = new ConcurrentLinkedQueue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastTick = nowMs / tickMs;
+    }
+
+    void schedule(T item, long deadlineMs) {
+        // Never land in a bucket the wheel has already passed this rotation
+        long tick = Math.max(deadlineMs / tickMs, lastTick + 1);
+        buckets[(int) (tick & mask)].add(new Timeout<>(item, tick));
+    }
+
+    /**
+     * Fire all entries due up to now. Not thread-safe: call from one thread only.
+     */
+    void advance(long nowMs, Consumer<T> onExpired) {
+        long nowTick = nowMs / tickMs;
+        long from = lastTick + 1;
+        // After a long pause every bucket is visited once rather than once per missed tick
+        if (nowTick - from >= buckets.length) {
+            from = nowTick - buckets.length + 1;
+        }
+        for (long tick = from; tick <= nowTick; tick++) {
+            Iterator<Timeout<T>> it = buckets[(int) (tick & mask)].iterator();
+            while (it.hasNext()) {
+                Timeout<T> timeout = it.next();
+                if (timeout.deadlineTick <= nowTick) {
+                    it.remove();
+                    onExpired.accept(timeout.item);
+                }
+            }
+        }
+        lastTick = Math.max(lastTick, nowTick);
+    }
+
+    private record Timeout<T>(T item, long deadlineTick) {
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.UUID;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.dto.HealthRecordDTO;
 import com.example.demo.entity.HealthRecord;
@@ -20,6 +21,7 @@ public class HealthRecordService {
     private final HealthRecordRepository healthRecordRepository;
     private final HealthRecordProducer healthRecordProducer;
 
+    @Transactional
     public HealthRecord createHealthRecord(HealthRecordDTO dto) {
         HealthRecord record = new HealthRecord();
         record.setId(UUID.randomUUID().toString());
@@ -42,7 +44,7 @@ public class HealthRecordService {
                 .recordDate(saved.getDate())
                 .action("created")
                 .build();
-        healthRecordProducer.publishHealthRecordEvent(event);
+        healthRecordProducer.enqueueHealthRecordEvent(event);
 
         return saved;
     }
@@ -64,6 +66,7 @@ public class HealthRecordService {
         return healthRecordRepository.findAll();
     }
 
+    @Transactional
     public HealthRecord updateHealthRecord(String id, HealthRecordDTO dto) {
         HealthRecord record = getHealthRecordById(id);
 
@@ -89,11 +92,12 @@ public class HealthRecordService {
                 .recordDate(updated.getDate())
                 .action("updated")
                 .build();
-        healthRecordProducer.publishHealthRecordEvent(event);
+        healthRecordProducer.enqueueHealthRecordEvent(event);
 
         return updated;
     }
 
+    @Transactional
     public void deleteHealthRecord(String id) {
         healthRecordRepository.deleteById(id);
     }
@@ -0,0 +1,77 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * OTP store held in a Caffeine cache that expires entries with the code, so sending and
+ * verifying never write to the users table. Codes live on the instance that sent them:
+ * a restart drops pending codes, and with several backends behind the load balancer
+ * either route a user's requests to one instance or use otp.store=database.
+ */
+@Component
+@ConditionalOnProperty(name = "otp.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOtpStore implements OtpStore {
+
+    private final Cache<String, Entry> entries;
+
+    public InMemoryOtpStore(@Value("${otp.validity-minutes:10}") long validityMinutes,
+                            @Value("${otp.memory.max-entries:100000}") long maxEntries) {
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(validityMinutes))
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    @Override
+    public void save(String userId, PendingOtp otp) {
+        entries.put(userId, new Entry(otp));
+    }
+
+    @Override
+    public Attempt verify(String userId, String codeHash, int maxAttempts) {
+        Entry entry = entries.getIfPresent(userId);
+        if (entry == null) {
+            return Attempt.of(Outcome.NOT_FOUND);
+        }
+        if (LocalDateTime.now().isAfter(entry.otp.expiresAt())) {
+            entries.asMap().remove(userId, entry);
+            return Attempt.of(Outcome.EXPIRED);
+        }
+        // Count the attempt before comparing so concurrent guesses cannot exceed the limit
+        if (entry.attempts.incrementAndGet() > maxAttempts) {
+            entries.asMap().remove(userId, entry);
+            return Attempt.of(Outcome.TOO_MANY_ATTEMPTS);
+        }
+        if (!OtpStore.hashesMatch(entry.otp.codeHash(), codeHash)) {
+            return Attempt.of(Outcome.INCORRECT);
+        }
+        // Only the request that removes the entry gets to use it
+        if (!entries.asMap().remove(userId, entry)) {
+            return Attempt.of(Outcome.NOT_FOUND);
+        }
+        return new Attempt(Outcome.VERIFIED, entry.otp.phone());
+    }
+
+    @Override
+    public void remove(String userId) {
+        entries.invalidate(userId);
+    }
+
+    private static final class Entry {
+        private final PendingOtp otp;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private Entry(PendingOtp otp) {
+            this.otp = otp;
+        }
+    }
+}
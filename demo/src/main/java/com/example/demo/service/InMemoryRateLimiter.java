@@ -0,0 +1,102 @@
+package com.example.demo.service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token buckets held in lock-striped hash maps, so requests for different keys rarely
+ * contend. Buckets that have refilled completely carry no state and are swept periodically.
+ */
+@Component
+@ConditionalOnProperty(name = "rate-limit.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRateLimiter implements RateLimiter {
+
+    private final Stripe[] stripes;
+    private final LongSupplier nanoClock;
+
+    public InMemoryRateLimiter(@Value("${rate-limit.stripes:64}") int stripes) {
+        this(stripes, System::nanoTime);
+    }
+
+    InMemoryRateLimiter(int stripes, LongSupplier nanoClock) {
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Decision tryAcquire(String key, Limit limit) {
+        String bucketKey = limit.name() + ":" + key;
+        Stripe stripe = stripes[(bucketKey.hashCode() & 0x7fffffff) % stripes.length];
+        long now = nanoClock.getAsLong();
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.computeIfAbsent(bucketKey, k -> new Bucket(limit, now));
+            bucket.refill(now);
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return Decision.ALLOWED;
+            }
+            double nanosUntilToken = (1 - bucket.tokens) / limit.tokensPerNano();
+            return new Decision(false, Math.max(1, (long) Math.ceil(nanosUntilToken / 1_000_000_000d)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = nanoClock.getAsLong();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Bucket> it = stripe.buckets.values().iterator();
+                while (it.hasNext()) {
+                    Bucket bucket = it.next();
+                    bucket.refill(now);
+                    if (bucket.tokens >= bucket.limit.capacity()) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    private static final class Stripe {
+        private final Map<String, Bucket> buckets = new HashMap<>();
+    }
+
+    private static final class Bucket {
+        private final Limit limit;
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(Limit limit, long now) {
+            this.limit = limit;
+            this.tokens = limit.capacity();
+            this.refilledAt = now;
+        }
+
+        private void refill(long now) {
+            if (now > refilledAt) {
+                tokens = Math.min(limit.capacity(), tokens + (now - refilledAt) * limit.tokensPerNano());
+                refilledAt = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background job that cancels unpaid orders whose stock holds have expired
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryReservationExpiry {
+
+    private final InventoryService inventoryService;
+    private final OrderService orderService;
+
+    @Value("${inventory.expiry-batch-size:100}")
+    private int batchSize = 100;
+
+    @Scheduled(fixedDelayString = "${inventory.expiry-interval-ms:60000}")
+    public void expire() {
+        List<String> orderIds;
+        do {
+            orderIds = inventoryService.findExpiredOrderIds(batchSize);
+            for (String orderId : orderIds) {
+                try {
+                    orderService.expireReservations(orderId);
+                } catch (Exception e) {
+                    log.error("Could not expire stock holds for order {}: {}", orderId, e.getMessage(), e);
+                    return;
+                }
+            }
+        } while (orderIds.size() == batchSize);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entity.InventoryReservation;
+import com.example.demo.repository.InventoryReservationRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stock reservations for orders.
+ *
+ * Stock is taken with one conditional UPDATE per product (stock_quantity >= requested),
+ * sent as a single JDBC batch in product id order, after everything else in the checkout
+ * transaction has been flushed. Row locks on popular products are therefore held only
+ * from the decrement to the commit, and two checkouts never lock the same rows in opposite
+ * order. in_stock is derived in the same statement. Products without a stock_quantity are
+ * not tracked and only honour the manual in_stock flag.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryService {
+    public static final String OUT_OF_STOCK_MESSAGE = "Out of stock";
+
+    private static final String HELD = "held";
+    private static final String RESERVE_SQL = "UPDATE pharmacy_products SET stock_quantity = stock_quantity - ?, "
+            + "in_stock = CASE WHEN stock_quantity IS NULL THEN in_stock ELSE stock_quantity - ? > 0 END "
+            + "WHERE id = ? AND (stock_quantity >= ? OR (stock_quantity IS NULL AND COALESCE(in_stock, TRUE)))";
+    private static final String RESTOCK_SQL = "UPDATE pharmacy_products SET stock_quantity = stock_quantity + ?, "
+            + "in_stock = CASE WHEN stock_quantity IS NULL THEN in_stock ELSE stock_quantity + ? > 0 END WHERE id = ?";
+    // Flip and read back in one statement: only rows this call released are restocked
+    private static final String RELEASE_SQL = "UPDATE inventory_reservations SET status = 'released', settled_at = ? "
+            + "WHERE order_id = ? AND status = 'held' RETURNING product_id, quantity";
+    private static final String COMMIT_SQL = "UPDATE inventory_reservations SET status = 'committed', settled_at = ? "
+            + "WHERE order_id = ? AND status = 'held'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryReservationRepository reservationRepository;
+
+    @Value("${inventory.reservation-ttl-minutes:60}")
+    private long reservationTtlMinutes = 60;
+
+    /**
+     * Hold stock for every product of the order, or none of it.
+     * Must run inside the transaction that creates the order.
+     */
+    @Transactional
+    public void reserve(String orderId, Map<String, Integer> quantities) {
+        Map<String, Integer> byProduct = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (productId == null || quantity == null || quantity <= 0) {
+                throw new RuntimeException("Invalid quantity for product " + productId);
+            }
+            byProduct.merge(productId, quantity, Integer::sum);
+        });
+        if (byProduct.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(reservationTtlMinutes);
+        List<InventoryReservation> reservations = new ArrayList<>(byProduct.size());
+        List<Object[]> args = new ArrayList<>(byProduct.size());
+        byProduct.forEach((productId, quantity) -> {
+            InventoryReservation reservation = new InventoryReservation();
+            reservation.setId(UUID.randomUUID().toString());
+            reservation.setOrderId(orderId);
+            reservation.setProductId(productId);
+            reservation.setQuantity(quantity);
+            reservation.setStatus(HELD);
+            reservation.setExpiresAt(expiresAt);
+            reservations.add(reservation);
+            args.add(new Object[] {quantity, quantity, productId, quantity});
+        });
+        // Flush the order, items and holds first so the product locks below are the last thing taken
+        reservationRepository.saveAllAndFlush(reservations);
+
+        int[] counts = jdbcTemplate.batchUpdate(RESERVE_SQL, args);
+        List<String> productIds = new ArrayList<>(byProduct.keySet());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                // Rolls back the whole checkout, including decrements already applied in this batch
+                throw new ConflictException(OUT_OF_STOCK_MESSAGE + ": " + productIds.get(i));
+            }
+        }
+    }
+
+    /**
+     * Make the order's holds permanent (order paid). Returns the number of holds committed.
+     */
+    @Transactional
+    public int commit(String orderId) {
+        return jdbcTemplate.update(COMMIT_SQL, Timestamp.valueOf(LocalDateTime.now()), orderId);
+    }
+
+    /**
+     * Give the order's held units back. Safe to call more than once or concurrently.
+     */
+    @Transactional
+    public int release(String orderId) {
+        Map<String, Integer> released = new TreeMap<>();
+        jdbcTemplate.query(RELEASE_SQL, rs -> {
+            released.merge(rs.getString("product_id"), rs.getInt("quantity"), Integer::sum);
+        }, Timestamp.valueOf(LocalDateTime.now()), orderId);
+        if (released.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> args = new ArrayList<>(released.size());
+        released.forEach((productId, quantity) -> args.add(new Object[] {quantity, quantity, productId}));
+        jdbcTemplate.batchUpdate(RESTOCK_SQL, args);
+        log.info("Released stock for order {}: {}", orderId, released);
+        return released.size();
+    }
+
+    public List<String> findExpiredOrderIds(int limit) {
+        return reservationRepository.findExpiredOrderIds(LocalDateTime.now(), limit);
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.demo.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entity.Message;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind appender for conversation messages from every conversation.
+ *
+ * A single writer thread collects queued messages until it has {@code max-size} rows or
+ * {@code linger-ms} has passed since the first one, then stores them with one multi-row
+ * INSERT. Each append returns a future completed once its row is committed, so callers
+ * that need durability wait on it and the rest (inbound SMS already acknowledged to
+ * Twilio) do not. When the queue is full the caller writes its row itself, which slows
+ * producers down instead of dropping data.
+ */
+@Component
+@Slf4j
+public class MessageBatchWriter implements SmartLifecycle {
+
+    private static final String INSERT_PREFIX = "INSERT INTO messages "
+            + "(id, conversation_id, sender_type, direction, body, from_number, to_number, created_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 8;
+    private static final String TOUCH_SQL = "UPDATE conversations SET last_message_at = ? "
+            + "WHERE id = ? AND (last_message_at IS NULL OR last_message_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long lingerNanos;
+
+    // Appends check running and queue under the read side; stop() flips running under the
+    // write side, so nothing can be queued after its final drain
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread writer;
+
+    public MessageBatchWriter(JdbcTemplate jdbcTemplate,
+                              @Value("${messages.batch.queue-capacity:10000}") int queueCapacity,
+                              @Value("${messages.batch.max-size:200}") int batchSize,
+                              @Value("${messages.batch.linger-ms:5}") long lingerMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+    }
+
+    /**
+     * Queue a message; the future completes with it once the row is committed
+     */
+    public CompletableFuture<Message> append(Message message) {
+        Pending pending = new Pending(message, new CompletableFuture<>());
+        boolean queued;
+        stateLock.readLock().lock();
+        try {
+            queued = running && queue.offer(pending);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (!queued) {
+            log.warn("Message writer busy or stopped, writing message {} directly", message.getId());
+            write(List.of(pending));
+        }
+        return pending.done;
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = new Thread(this::run, "message-writer");
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        if (writer != null) {
+            writer.interrupt();
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Anything the writer left behind (it gave up waiting, or was interrupted mid-batch)
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            write(rest);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Linger briefly so concurrent appends share the round trip
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Stopping: write what we have, the loop drains the rest
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<Pending> stored = batch;
+        try {
+            insert(batch);
+        } catch (DataAccessException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+                return;
+            }
+            // One bad row (e.g. its conversation was deleted) must not take the batch down with it
+            log.warn("Insert of {} messages failed, retrying one by one: {}", batch.size(), e.getMostSpecificCause().getMessage());
+            stored = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                try {
+                    insert(List.of(pending));
+                    stored.add(pending);
+                } catch (DataAccessException rowError) {
+                    fail(pending, rowError);
+                }
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(p -> p.done.completeExceptionally(e));
+            return;
+        }
+        touchConversations(stored);
+        stored.forEach(p -> p.done.complete(p.message));
+    }
+
+    // Latest message time per conversation in the batch, for inbox ordering
+    private void touchConversations(List<Pending> stored) {
+        // Sorted so concurrent writers on other instances lock rows in the same order
+        Map<String, LocalDateTime> latest = new TreeMap<>();
+        for (Pending pending : stored) {
+            latest.merge(pending.message.getConversationId(), pending.message.getCreatedAt(),
+                    (a, b) -> a.isAfter(b) ? a : b);
+        }
+        if (latest.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(latest.size());
+        latest.forEach((conversationId, at) -> {
+            Timestamp ts = Timestamp.valueOf(at);
+            args.add(new Object[] {ts, conversationId, ts});
+        });
+        try {
+            jdbcTemplate.batchUpdate(TOUCH_SQL, args);
+        } catch (DataAccessException e) {
+            // The messages are stored; only the inbox ordering lags until the next message
+            log.warn("Could not update last_message_at for {} conversations: {}", latest.size(), e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private void fail(Pending pending, DataAccessException e) {
+        log.error("Message {} for conversation {} not stored: {}", pending.message.getId(),
+                pending.message.getConversationId(), e.getMostSpecificCause().getMessage());
+        pending.done.completeExceptionally(e);
+    }
+
+    private void insert(List<Pending> batch) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + batch.size() * (ROW_PLACEHOLDERS.length() + 2));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[batch.size() * COLUMNS];
+        int i = 0;
+        for (Pending pending : batch) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+            Message message = pending.message;
+            args[i++] = message.getId();
+            args[i++] = message.getConversationId();
+            args[i++] = message.getSenderType();
+            args[i++] = message.getDirection();
+            args[i++] = message.getBody();
+            args[i++] = message.getFromNumber();
+            args[i++] = message.getToNumber();
+            args[i++] = Timestamp.valueOf(message.getCreatedAt());
+        }
+        jdbcTemplate.update(sql.toString(), args);
+    }
+
+    private record Pending(Message message, CompletableFuture<Message> done) {}
+}
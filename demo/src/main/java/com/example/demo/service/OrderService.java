@@ -1,10 +1,15 @@
 package com.example.demo.service;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.dto.OrderDTO;
 import com.example.demo.dto.OrderItemDTO;
@@ -14,30 +19,39 @@ import com.example.demo.event.OrderEvent;
 import com.example.demo.kafka.producer.OrderProducer;
 import com.example.demo.repository.OrderItemRepository;
 import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.PaymentSessionRepository;
 
 import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
+    public static final String INVALID_TRANSITION_MESSAGE = "Invalid status transition";
+    public static final String CONCURRENT_UPDATE_MESSAGE = "Order was updated by someone else. Reload and try again.";
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final OrderProducer orderProducer;
+    private final InventoryService inventoryService;
+    private final PaymentSessionRepository paymentSessionRepository;
 
+    @Transactional
     public Order createOrder(OrderDTO dto) {
         Order order = new Order();
         order.setId(UUID.randomUUID().toString());
         order.setUserId(dto.getUserId());
         order.setTotal(dto.getTotal());
         order.setShippingAddress(dto.getShippingAddress());
-        order.setStatus("pending");
+        order.setStatus(OrderStateMachine.PENDING);
 
         Order savedOrder = orderRepository.save(order);
 
         // Create order items
         List<OrderEvent.OrderItemEvent> itemEvents = new java.util.ArrayList<>();
+        Map<String, Integer> quantities = new HashMap<>();
         if (dto.getItems() != null && !dto.getItems().isEmpty()) {
             for (OrderItemDTO itemDto : dto.getItems()) {
+                quantities.merge(itemDto.getProductId(), itemDto.getQuantity() != null ? itemDto.getQuantity() : 0, Integer::sum);
                 OrderItem item = new OrderItem();
                 item.setId(UUID.randomUUID().toString());
                 item.setOrderId(savedOrder.getId());
@@ -64,7 +78,10 @@ public class OrderService {
                 .items(itemEvents)
                 .action("created")
                 .build();
-        orderProducer.publishOrderEvent(event);
+        orderProducer.enqueueOrderEvent(event);
+
+        // Last, so product rows stay locked only until the commit right after
+        inventoryService.reserve(savedOrder.getId(), quantities);
 
         return savedOrder;
     }
@@ -82,26 +99,111 @@ public class OrderService {
         return orderRepository.findAll();
     }
 
+    @Transactional
     public Order updateOrderStatus(String id, String status) {
-        Order order = getOrderById(id);
-        order.setStatus(status);
-        Order updated = orderRepository.save(order);
+        return updateOrderStatus(id, status, null);
+    }
+
+    /**
+     * Move the order to a new status with one conditional UPDATE. With expectedStatus the
+     * update only applies if the order is still in that status (the one the caller saw).
+     * Exactly one event is published per applied transition.
+     */
+    @Transactional
+    public Order updateOrderStatus(String id, String status, String expectedStatus) {
+        String target = status != null ? status.trim().toLowerCase(Locale.ROOT) : null;
+        if (!OrderStateMachine.isStatus(target)) {
+            throw new RuntimeException("Invalid order status: " + status);
+        }
+        Set<String> from = OrderStateMachine.predecessors(target);
+        if (expectedStatus != null) {
+            String expected = expectedStatus.trim().toLowerCase(Locale.ROOT);
+            if (!from.contains(expected)) {
+                throw new ConflictException(INVALID_TRANSITION_MESSAGE + ": " + expected + " -> " + target);
+            }
+            from = Set.of(expected);
+        }
+        if (from.isEmpty() || orderRepository.transition(id, from, target, LocalDateTime.now()) == 0) {
+            // Nothing matched: say why from the row as it is now
+            Order current = getOrderById(id);
+            if (expectedStatus != null && !from.contains(current.getStatus())) {
+                throw new ConflictException(CONCURRENT_UPDATE_MESSAGE);
+            }
+            throw new ConflictException(INVALID_TRANSITION_MESSAGE + ": " + current.getStatus() + " -> " + target);
+        }
+
+        if (OrderStateMachine.CANCELLED.equals(target)) {
+            releaseOrder(id);
+        }
+        Order updated = getOrderById(id);
+        publishUpdated(updated);
+        return updated;
+    }
 
+    /**
+     * Stock holds of the order ran out: cancel it if still unpaid and give the stock back,
+     * or keep the stock if it was paid in the meantime
+     */
+    @Transactional
+    public void expireReservations(String id) {
+        if (orderRepository.transition(id, Set.of(OrderStateMachine.PENDING), OrderStateMachine.CANCELLED, LocalDateTime.now()) > 0) {
+            releaseOrder(id);
+            publishUpdated(getOrderById(id));
+            return;
+        }
+        Order order = orderRepository.findById(id).orElse(null);
+        if (order == null || OrderStateMachine.CANCELLED.equals(order.getStatus())) {
+            releaseOrder(id);
+        } else {
+            inventoryService.commit(id);
+        }
+    }
+
+    /**
+     * Mark the order paid after the gateway confirmed it; false if it already was
+     */
+    @Transactional
+    public boolean markPaid(String id) {
+        Set<String> from = OrderStateMachine.paymentPredecessors(OrderStateMachine.PAYMENT_COMPLETED);
+        if (orderRepository.markPaid(id, from, LocalDateTime.now()) == 0) {
+            return false;
+        }
+        inventoryService.commit(id);
+        publishUpdated(getOrderById(id));
+        return true;
+    }
+
+    /**
+     * Record a failed payment attempt; a later successful session can still complete it
+     */
+    @Transactional
+    public boolean markPaymentFailed(String id) {
+        Set<String> from = OrderStateMachine.paymentPredecessors(OrderStateMachine.PAYMENT_FAILED);
+        return orderRepository.transitionPayment(id, from, OrderStateMachine.PAYMENT_FAILED, LocalDateTime.now()) > 0;
+    }
+
+    // Stock goes back and the pending checkout is closed, so it cannot be paid without stock
+    private void releaseOrder(String id) {
+        inventoryService.release(id);
+        paymentSessionRepository.expirePending(id, LocalDateTime.now());
+    }
+
+    private void publishUpdated(Order order) {
         // Publish order status update event to Kafka
         OrderEvent event = OrderEvent.builder()
-                .orderId(updated.getId())
-                .patientId(updated.getUserId())
-                .totalPrice(updated.getTotal() != null ? updated.getTotal().doubleValue() : 0.0)
-                .status(updated.getStatus())
-                .orderDate(updated.getCreatedAt() != null ? updated.getCreatedAt() : LocalDateTime.now())
+                .orderId(order.getId())
+                .patientId(order.getUserId())
+                .totalPrice(order.getTotal() != null ? order.getTotal().doubleValue() : 0.0)
+                .status(order.getStatus())
+                .orderDate(order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now())
                 .action("updated")
                 .build();
-        orderProducer.publishOrderEvent(event);
-
-        return updated;
+        orderProducer.enqueueOrderEvent(event);
     }
 
+    @Transactional
     public void deleteOrder(String id) {
+        releaseOrder(id);
         // Delete order items first
         List<OrderItem> items = orderItemRepository.findByOrderId(id);
         orderItemRepository.deleteAll(items);
@@ -0,0 +1,67 @@
+package com.example.demo.service;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Allowed order and payment status transitions.
+ *
+ * Fulfilment: pending -> processing -> shipped -> delivered, and pending or processing
+ * -> cancelled. Payment: pending -> completed or failed, failed -> completed (paid on a
+ * later attempt). Transitions are applied as conditional UPDATEs on the allowed
+ * predecessors, so the database row decides which of two racing requests wins.
+ */
+public final class OrderStateMachine {
+
+    public static final String PENDING = "pending";
+    public static final String PROCESSING = "processing";
+    public static final String SHIPPED = "shipped";
+    public static final String DELIVERED = "delivered";
+    public static final String CANCELLED = "cancelled";
+
+    public static final String PAYMENT_PENDING = "pending";
+    public static final String PAYMENT_COMPLETED = "completed";
+    public static final String PAYMENT_FAILED = "failed";
+
+    // Target status -> statuses it may be reached from
+    private static final Map<String, Set<String>> PREDECESSORS = Map.of(
+            PENDING, Set.of(),
+            PROCESSING, Set.of(PENDING),
+            SHIPPED, Set.of(PROCESSING),
+            DELIVERED, Set.of(SHIPPED),
+            CANCELLED, Set.of(PENDING, PROCESSING)
+    );
+
+    private static final Map<String, Set<String>> PAYMENT_PREDECESSORS = Map.of(
+            PAYMENT_PENDING, Set.of(),
+            PAYMENT_COMPLETED, Set.of(PAYMENT_PENDING, PAYMENT_FAILED),
+            PAYMENT_FAILED, Set.of(PAYMENT_PENDING)
+    );
+
+    private OrderStateMachine() {
+    }
+
+    public static boolean isStatus(String status) {
+        return status != null && PREDECESSORS.containsKey(status);
+    }
+
+    public static Set<String> predecessors(String status) {
+        Set<String> from = PREDECESSORS.get(status);
+        if (from == null) {
+            throw new IllegalArgumentException("Unknown order status: " + status);
+        }
+        return from;
+    }
+
+    public static Set<String> paymentPredecessors(String paymentStatus) {
+        Set<String> from = PAYMENT_PREDECESSORS.get(paymentStatus);
+        if (from == null) {
+            throw new IllegalArgumentException("Unknown payment status: " + paymentStatus);
+        }
+        return from;
+    }
+
+    public static boolean canTransition(String from, String to) {
+        return isStatus(to) && predecessors(to).contains(from);
+    }
+}
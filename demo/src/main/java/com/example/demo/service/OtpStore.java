@@ -0,0 +1,53 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+
+/**
+ * Pending phone verification codes, keyed by user id. Only keyed hashes of the codes
+ * are stored. Selected with otp.store: "memory" (default) or "database".
+ */
+public interface OtpStore {
+
+    /**
+     * Replace any pending code for the user
+     */
+    void save(String userId, PendingOtp otp);
+
+    /**
+     * Count an attempt against the pending code and consume it if the hash matches.
+     * A code is consumed at most once, even under concurrent attempts.
+     */
+    Attempt verify(String userId, String codeHash, int maxAttempts);
+
+    void remove(String userId);
+
+    /**
+     * Whether other instances read the codes this instance saves, in which case they
+     * must all hash under the same key
+     */
+    default boolean shared() {
+        return false;
+    }
+
+    record PendingOtp(String phone, String codeHash, LocalDateTime expiresAt, LocalDateTime sentAt) {}
+
+    record Attempt(Outcome outcome, String phone) {
+        static Attempt of(Outcome outcome) {
+            return new Attempt(outcome, null);
+        }
+    }
+
+    enum Outcome { VERIFIED, INCORRECT, NOT_FOUND, EXPIRED, TOO_MANY_ATTEMPTS }
+
+    /**
+     * Constant-time comparison so response timing does not leak how much of the hash matched
+     */
+    static boolean hashesMatch(String expected, String actual) {
+        if (expected == null || actual == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    }
+}
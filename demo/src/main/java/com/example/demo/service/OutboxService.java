@@ -0,0 +1,193 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entity.OutboxEvent;
+import com.example.demo.event.EventJson;
+import com.example.demo.kafka.producer.EventPublisher;
+import com.example.demo.repository.OutboxEventRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Transactional outbox for domain events.
+ *
+ * Services enqueue events inside their own database transaction, so the event is
+ * stored if and only if the entity change commits. {@link #relayBatch()} later drains
+ * pending rows to Kafka in batches, keeping the broker out of the request path.
+ * Delivery is at-least-once: a crash after the send but before the commit re-sends the batch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxService {
+    private final OutboxEventRepository outboxEventRepository;
+    private final EventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Class<?>> eventTypes = new ConcurrentHashMap<>();
+
+    @Value("${kafka.outbox.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${kafka.outbox.alert-after-attempts:10}")
+    private int alertAfterAttempts = 10;
+
+    @Value("${kafka.outbox.retry-initial-ms:1000}")
+    private long retryInitialMs = 1000;
+
+    @Value("${kafka.outbox.retry-max-ms:300000}")
+    private long retryMaxMs = 300000;
+
+    @Value("${kafka.outbox.send-timeout-ms:10000}")
+    private long sendTimeoutMs = 10000;
+
+    /**
+     * Store an event to be published once the surrounding transaction commits
+     */
+    @Transactional
+    public OutboxEvent enqueue(String topic, String key, Object event) {
+        OutboxEvent row = new OutboxEvent();
+        row.setId(UUID.randomUUID().toString());
+        row.setTopic(topic);
+        row.setMessageKey(key);
+        row.setEventType(event.getClass().getName());
+        row.setPayload(EventJson.write(event));
+        return outboxEventRepository.save(row);
+    }
+
+    /**
+     * Send the next batch of due events and mark the acknowledged ones as published.
+     * Submission stops at the first send the producer refuses outright and at the batch
+     * deadline, so a broker outage holds the row locks for at most send-timeout-ms. A failed
+     * row is retried with exponential backoff, without limit, and later rows for its key
+     * wait behind it (duplicates rather than reordering). Rows still failing after
+     * alert-after-attempts are logged as errors and counted in outbox.events.stuck.
+     * @return true if the whole full batch went out and more rows are probably waiting
+     */
+    @Transactional
+    public boolean relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(now, batchSize);
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        // One deadline for the whole batch, submission included
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        // Hand the batch to the producer first so it can fill its own batches
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent row : batch) {
+            if (deadline - System.nanoTime() <= 0) {
+                break;
+            }
+            Object event;
+            try {
+                event = EventJson.read(row.getPayload(), eventType(row.getEventType()));
+            } catch (Exception e) {
+                sends.add(CompletableFuture.failedFuture(e));
+                continue;
+            }
+            CompletableFuture<?> send;
+            try {
+                send = eventPublisher.publish(row.getTopic(), row.getMessageKey(), event);
+            } catch (Exception e) {
+                send = CompletableFuture.failedFuture(e);
+            }
+            sends.add(send);
+            // Failed on the spot (e.g. no broker metadata within max.block.ms): the rest would block too
+            if (send.isCompletedExceptionally()) {
+                break;
+            }
+        }
+
+        // Keys with an undelivered row: later rows for them stay pending to keep per-key order
+        Set<String> failedKeys = new HashSet<>();
+        List<String> published = new ArrayList<>(sends.size());
+        for (int i = 0; i < sends.size(); i++) {
+            OutboxEvent row = batch.get(i);
+            String orderingKey = row.getTopic() + '\u0000' + row.getMessageKey();
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (row.getMessageKey() == null || !failedKeys.contains(orderingKey)) {
+                    published.add(row.getId());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                recordFailure(row, e instanceof ExecutionException ? e.getCause() : e, now);
+                if (row.getMessageKey() != null) {
+                    failedKeys.add(orderingKey);
+                }
+            }
+        }
+
+        if (!published.isEmpty()) {
+            outboxEventRepository.markPublished(published, LocalDateTime.now());
+        }
+        log.debug("Relayed {}/{} outbox events", published.size(), batch.size());
+        return batch.size() == batchSize && published.size() == batch.size();
+    }
+
+    private void recordFailure(OutboxEvent row, Throwable cause, LocalDateTime now) {
+        int attempts = row.getAttempts() + 1;
+        row.setAttempts(attempts);
+        row.setLastError(cause.getClass().getSimpleName() + ": " + cause.getMessage());
+        row.setNextAttemptAt(now.plus(backoff(attempts)));
+        if (attempts == alertAfterAttempts) {
+            Counter.builder("outbox.events.stuck")
+                    .description("Outbox events still undelivered after the alert threshold of attempts")
+                    .tag("topic", row.getTopic())
+                    .register(meterRegistry)
+                    .increment();
+            log.error("Outbox event {} for topic {} undelivered after {} attempts, still retrying: {}",
+                    row.getId(), row.getTopic(), attempts, cause.getMessage());
+        } else {
+            log.warn("Outbox event {} for topic {} not delivered (attempt {}), next try at {}: {}",
+                    row.getId(), row.getTopic(), attempts, row.getNextAttemptAt(), cause.getMessage());
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        long delay = retryInitialMs << Math.min(attempts - 1, 20);
+        return Duration.ofMillis(Math.min(delay, retryMaxMs));
+    }
+
+    /**
+     * Delete published rows older than the cutoff
+     */
+    @Transactional
+    public int purgePublishedBefore(LocalDateTime cutoff) {
+        return outboxEventRepository.deletePublishedBefore(cutoff);
+    }
+
+    private Class<?> eventType(String className) {
+        return eventTypes.computeIfAbsent(className, name -> {
+            try {
+                return Class.forName(name);
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("Unknown event type " + name, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * BCrypt hashing on the bounded passwordHashingExecutor.
+ *
+ * Request threads hand the CPU-heavy work to the pool and wait for the result. When the
+ * pool and its queue are full the task is rejected with TaskRejectedException, which
+ * ApiExceptionHandler turns into 429 so a login storm fails fast instead of exhausting
+ * Tomcat. A hash that waits past the timeout is reported the same way.
+ */
+@Service
+@Slf4j
+public class PasswordHashingService {
+
+    private final Executor executor;
+    private final int cost;
+    private final long timeoutMs;
+
+    public PasswordHashingService(@Qualifier("passwordHashingExecutor") Executor executor,
+                                  @Value("${security.password.bcrypt-cost:12}") int cost,
+                                  @Value("${security.password.hashing-timeout-ms:10000}") long timeoutMs) {
+        this.executor = executor;
+        this.cost = cost;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public record Verification(boolean verified, boolean needsRehash) {
+    }
+
+    public String hash(String password) {
+        return await(CompletableFuture.supplyAsync(() -> hashNow(password), executor));
+    }
+
+    /**
+     * Check a password. needsRehash is set when the stored hash uses a different cost
+     * than the configured one.
+     */
+    public Verification verify(String password, String hash) {
+        return await(CompletableFuture.supplyAsync(() -> {
+            BCrypt.Result result = BCrypt.verifyer().verify(password.toCharArray(), hash);
+            boolean needsRehash = result.verified && result.details != null && result.details.cost != cost;
+            return new Verification(result.verified, needsRehash);
+        }, executor));
+    }
+
+    /**
+     * Hash in the background; completes exceptionally if the pool is saturated
+     */
+    public CompletableFuture<String> hashAsync(String password) {
+        try {
+            return CompletableFuture.supplyAsync(() -> hashNow(password), executor);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    private String hashNow(String password) {
+        return BCrypt.withDefaults().hashToString(cost, password.toCharArray());
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Password hashing interrupted", e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new TaskRejectedException("Password hashing timed out", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.PaymentSession;
+
+/**
+ * Read side of the payment provider, used by reconciliation when a webhook is late or lost
+ */
+public interface PaymentGateway {
+
+    enum Status { PENDING, SUCCEEDED, FAILED }
+
+    record Result(Status status, String reference) {}
+
+    Result fetchStatus(PaymentSession session);
+}
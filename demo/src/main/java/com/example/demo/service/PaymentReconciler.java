@@ -0,0 +1,30 @@
+package com.example.demo.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background job that settles payment sessions whose webhook never arrived
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentReconciler {
+
+    private final PaymentSessionService paymentSessionService;
+
+    @Scheduled(fixedDelayString = "${app.payment.reconcile.interval-ms:30000}")
+    public void reconcile() {
+        try {
+            // Keep going while batches come back full, then wait for the next tick
+            while (paymentSessionService.reconcileBatch()) {
+                log.debug("More payment sessions due, reconciling next batch");
+            }
+        } catch (Exception e) {
+            log.error("Payment reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+}
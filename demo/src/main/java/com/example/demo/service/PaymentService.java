@@ -4,24 +4,38 @@ import com.example.demo.dto.PaymentDTO;
 import com.example.demo.entity.Order;
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Payment Service
  * Handles payment processing and QR code generation for orders
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class PaymentService {
 
+    public static final String METHOD_UPI = "upi";
+    public static final String METHOD_STRIPE = "stripe";
+    public static final String METHOD_RAZORPAY = "razorpay";
+    public static final String METHOD_LINK = "link";
+
     private final QRCodeService qrCodeService;
     private final UserRepository userRepository;
+    private final Executor qrExecutor;
+
+    @Value("${app.payment.qr-timeout-ms:2000}")
+    private long qrTimeoutMs = 2000;
 
     @Value("${app.payment.upi-id:}")
     private String upiId;
@@ -38,11 +52,27 @@ public class PaymentService {
     @Value("${app.payment.payment-gateway-url:}")
     private String paymentGatewayUrl;
 
+    public PaymentService(QRCodeService qrCodeService,
+                          UserRepository userRepository,
+                          @Qualifier("qrExecutor") Executor qrExecutor) {
+        this.qrCodeService = qrCodeService;
+        this.userRepository = userRepository;
+        this.qrExecutor = qrExecutor;
+    }
+
     /**
      * Generate payment info for an order with QR codes
      * Supports multiple payment methods
      */
     public PaymentDTO generatePaymentInfo(Order order) {
+        return generatePaymentInfo(order, null);
+    }
+
+    /**
+     * Payment info limited to the requested methods (upi, stripe, razorpay, link);
+     * null or empty means every configured method. QR codes are only encoded for those.
+     */
+    public PaymentDTO generatePaymentInfo(Order order, Set<String> methods) {
         try {
             PaymentDTO payment = new PaymentDTO();
             payment.setOrderId(order.getId());
@@ -51,65 +81,27 @@ public class PaymentService {
             payment.setExpiresAt(LocalDateTime.now().plusHours(24)); // 24-hour expiry
             payment.setDescription("Payment for Order #" + order.getId());
 
-            // Generate UPI QR Code
-            if (upiId != null && !upiId.isEmpty()) {
-                try {
-                    String upiQR = qrCodeService.generateUPIQRCode(
-                            upiId,
-                            upiName,
-                            order.getTotal().doubleValue(),
-                            order.getId()
-                    );
-                    payment.setUpiId(upiId);
-                    payment.setUpiQRCode(upiQR);
-                    log.info("✅ Generated UPI QR code for order: {}", order.getId());
-                } catch (Exception e) {
-                    log.error("❌ Failed to generate UPI QR: {}", e.getMessage());
-                }
-            }
+            // Start every QR at once; the page waits for the slowest one, not the sum
+            PendingQr upi = startQr(order, methods, METHOD_UPI);
+            PendingQr stripe = startQr(order, methods, METHOD_STRIPE);
+            PendingQr razorpay = startQr(order, methods, METHOD_RAZORPAY);
+            PendingQr link = startQr(order, methods, METHOD_LINK);
 
-            // Generate Stripe Payment Link
-            if (stripeKey != null && !stripeKey.isEmpty()) {
-                try {
-                    String stripeUrl = generateStripePaymentLink(order);
-                    String stripeQR = qrCodeService.generatePaymentLinkQRCode(stripeUrl);
-                    payment.setStripePaymentLink(stripeUrl);
-                    payment.setStripeQRCode(stripeQR);
-                    log.info("✅ Generated Stripe QR code for order: {}", order.getId());
-                } catch (Exception e) {
-                    log.error("❌ Failed to generate Stripe QR: {}", e.getMessage());
-                }
+            if (upi != null) {
+                payment.setUpiId(upiId);
+                payment.setUpiQRCode(upi.await(order));
             }
-
-            // Generate Razorpay Payment Link
-            if (razorpayKey != null && !razorpayKey.isEmpty()) {
-                try {
-                    String razorpayUrl = generateRazorpayPaymentLink(order);
-                    String razorpayQR = qrCodeService.generatePaymentLinkQRCode(razorpayUrl);
-                    payment.setRazorpayPaymentLink(razorpayUrl);
-                    payment.setRazorpayQRCode(razorpayQR);
-                    log.info("✅ Generated Razorpay QR code for order: {}", order.getId());
-                } catch (Exception e) {
-                    log.error("❌ Failed to generate Razorpay QR: {}", e.getMessage());
-                }
+            if (stripe != null) {
+                payment.setStripePaymentLink(stripe.payload());
+                payment.setStripeQRCode(stripe.await(order));
             }
-
-            // Generate Generic Payment Link QR
-            if (paymentGatewayUrl != null && !paymentGatewayUrl.isEmpty()) {
-                try {
-                    String genericPaymentUrl = String.format(
-                            "%s?orderId=%s&amount=%.2f",
-                            paymentGatewayUrl,
-                            order.getId(),
-                            order.getTotal()
-                    );
-                    String genericQR = qrCodeService.generatePaymentLinkQRCode(genericPaymentUrl);
-                    payment.setPaymentLink(genericPaymentUrl);
-                    payment.setPaymentLinkQRCode(genericQR);
-                    log.info("✅ Generated generic payment QR code for order: {}", order.getId());
-                } catch (Exception e) {
-                    log.error("❌ Failed to generate generic payment QR: {}", e.getMessage());
-                }
+            if (razorpay != null) {
+                payment.setRazorpayPaymentLink(razorpay.payload());
+                payment.setRazorpayQRCode(razorpay.await(order));
+            }
+            if (link != null) {
+                payment.setPaymentLink(link.payload());
+                payment.setPaymentLinkQRCode(link.await(order));
             }
 
             return payment;
@@ -119,6 +111,71 @@ public class PaymentService {
         }
     }
 
+    /**
+     * Text encoded in the QR code of a configured payment method
+     */
+    public String qrPayload(Order order, String method) {
+        if (!isConfigured(method)) {
+            throw new RuntimeException("Payment method not available: " + method);
+        }
+        return switch (method) {
+            case METHOD_UPI -> qrCodeService.upiPayload(upiId, upiName, order.getTotal().doubleValue(), order.getId());
+            case METHOD_STRIPE -> generateStripePaymentLink(order);
+            case METHOD_RAZORPAY -> generateRazorpayPaymentLink(order);
+            default -> generateGenericPaymentLink(order);
+        };
+    }
+
+    /**
+     * Encode the QR of a requested, configured method on the QR pool. A code that fails or
+     * takes longer than app.payment.qr-timeout-ms is left out of the response (the link is
+     * still returned); an encoding that finishes late still lands in the QR cache.
+     */
+    private PendingQr startQr(Order order, Set<String> methods, String method) {
+        if (!requested(methods, method) || !isConfigured(method)) {
+            return null;
+        }
+        String payload = qrPayload(order, method);
+        CompletableFuture<String> image = CompletableFuture
+                .supplyAsync(() -> qrCodeService.generateQRCodeBase64(payload), qrExecutor)
+                .orTimeout(qrTimeoutMs, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        log.warn("⚠️ {} QR for order {} not ready after {} ms, omitting it", method, order.getId(), qrTimeoutMs);
+                    } else {
+                        log.error("❌ Failed to generate {} QR: {}", method, cause.getMessage());
+                    }
+                    return null;
+                });
+        return new PendingQr(method, payload, image);
+    }
+
+    private boolean isConfigured(String method) {
+        String setting = switch (method) {
+            case METHOD_UPI -> upiId;
+            case METHOD_STRIPE -> stripeKey;
+            case METHOD_RAZORPAY -> razorpayKey;
+            case METHOD_LINK -> paymentGatewayUrl;
+            default -> null;
+        };
+        return setting != null && !setting.isEmpty();
+    }
+
+    private record PendingQr(String method, String payload, CompletableFuture<String> image) {
+        String await(Order order) {
+            String qr = image.join();
+            if (qr != null) {
+                log.info("✅ Generated {} QR code for order: {}", method, order.getId());
+            }
+            return qr;
+        }
+    }
+
+    private static boolean requested(Set<String> methods, String method) {
+        return methods == null || methods.isEmpty() || methods.contains(method);
+    }
+
     /**
      * Generate Stripe payment link
      */
@@ -143,6 +200,15 @@ public class PaymentService {
         );
     }
 
+    private String generateGenericPaymentLink(Order order) {
+        return String.format(
+                "%s?orderId=%s&amount=%.2f",
+                paymentGatewayUrl,
+                order.getId(),
+                order.getTotal()
+        );
+    }
+
     /**
      * Get user details for payment
      */
@@ -0,0 +1,292 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.entity.Order;
+import com.example.demo.entity.PaymentSession;
+import com.example.demo.event.EventJson;
+import com.example.demo.repository.PaymentSessionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persistent payment sessions and their settlement.
+ *
+ * A session is settled exactly once by a conditional UPDATE on its pending status, so the
+ * gateway webhook, its retries and the reconciliation job can all race without paying an
+ * order twice. Reconciliation claims due sessions in batches with SKIP LOCKED, asks the
+ * gateway outside the claiming transaction and backs off exponentially per session, so
+ * pending checkouts cost one small query per batch. A failed gateway check leaves the
+ * session pending, and a success reported for a session that was already closed is kept
+ * as paid_after_expiry (and counted) for a refund instead of being dropped.
+ */
+@Service
+@Slf4j
+public class PaymentSessionService {
+    public static final String INVALID_SIGNATURE_MESSAGE = "Invalid webhook signature";
+    public static final String SESSION_NOT_FOUND_MESSAGE = "Payment session not found";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String PENDING = "pending";
+
+    private final PaymentSessionRepository paymentSessionRepository;
+    private final OrderService orderService;
+    private final PaymentGateway paymentGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final SecretKeySpec webhookKey;
+    private final Counter latePayments;
+
+    @Value("${app.payment.session-ttl-minutes:1440}")
+    private long sessionTtlMinutes = 1440;
+
+    @Value("${app.payment.reconcile.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${app.payment.reconcile.initial-delay-seconds:60}")
+    private long initialDelaySeconds = 60;
+
+    @Value("${app.payment.reconcile.max-delay-seconds:3600}")
+    private long maxDelaySeconds = 3600;
+
+    @Value("${app.payment.reconcile.claim-lease-seconds:300}")
+    private long claimLeaseSeconds = 300;
+
+    public PaymentSessionService(PaymentSessionRepository paymentSessionRepository,
+                                 OrderService orderService,
+                                 Optional<PaymentGateway> paymentGateway,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.payment.webhook-secret:}") String webhookSecret) {
+        this.paymentSessionRepository = paymentSessionRepository;
+        this.orderService = orderService;
+        // No provider client configured: nothing but a signed webhook may settle a session
+        this.paymentGateway = paymentGateway.orElse(null);
+        if (this.paymentGateway == null) {
+            log.warn("No payment gateway configured: sessions are only settled by signed webhooks");
+        }
+        this.transactionTemplate = transactionTemplate;
+        // Without a secret every webhook is rejected
+        this.webhookKey = webhookSecret == null || webhookSecret.isBlank()
+                ? null
+                : new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.latePayments = Counter.builder("payments.paid_after_expiry")
+                .description("Payments the gateway confirmed for sessions already closed; need refund or manual reconciliation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The order's pending session, or a new one. Null when the order is already paid.
+     */
+    public PaymentSession openSession(Order order) {
+        if ("completed".equals(order.getPaymentStatus())) {
+            return null;
+        }
+        Optional<PaymentSession> existing = paymentSessionRepository.findFirstByOrderIdAndStatus(order.getId(), PENDING);
+        if (existing.isPresent()) {
+            PaymentSession session = existing.get();
+            if (session.getExpiresAt().isAfter(LocalDateTime.now())) {
+                return session;
+            }
+            // Reconciliation has not got to it yet; the gateway link it carried is no longer offered
+            paymentSessionRepository.settle(session.getId(), "expired", null, LocalDateTime.now());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        PaymentSession session = new PaymentSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setOrderId(order.getId());
+        session.setUserId(order.getUserId());
+        session.setAmount(order.getTotal().doubleValue());
+        session.setStatus(PENDING);
+        session.setNextCheckAt(now.plusSeconds(initialDelaySeconds));
+        session.setExpiresAt(now.plusMinutes(sessionTtlMinutes));
+        session.setCreatedAt(now);
+        try {
+            return paymentSessionRepository.saveAndFlush(session);
+        } catch (DataIntegrityViolationException e) {
+            // Another request opened one first (one pending session per order)
+            return paymentSessionRepository.findFirstByOrderIdAndStatus(order.getId(), PENDING)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Apply a signed gateway notification.
+     * @return false if the session was already settled (a retried or late webhook)
+     */
+    @Transactional
+    public boolean handleWebhook(String body, String signature) {
+        if (!signatureValid(body, signature)) {
+            throw new RuntimeException(INVALID_SIGNATURE_MESSAGE);
+        }
+        JsonNode event;
+        try {
+            event = EventJson.mapper().readTree(body);
+        } catch (Exception e) {
+            throw new RuntimeException("Malformed webhook payload");
+        }
+        String sessionId = event.path("sessionId").asText(null);
+        if (sessionId == null) {
+            throw new RuntimeException("Missing sessionId");
+        }
+        PaymentSession session = paymentSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new RuntimeException(SESSION_NOT_FOUND_MESSAGE));
+        PaymentGateway.Status status = parseStatus(event.path("status").asText(""));
+        return settle(session, new PaymentGateway.Result(status, event.path("reference").asText(null)));
+    }
+
+    /**
+     * Ask the gateway about the order's pending session now, e.g. when the customer returns
+     * from the payment page. Returns the session's state afterwards, or empty if there is none
+     * or no gateway is configured (then only a signed webhook can settle it).
+     */
+    public Optional<String> reconcileOrder(String orderId) {
+        Optional<PaymentSession> pending = paymentSessionRepository.findFirstByOrderIdAndStatus(orderId, PENDING);
+        if (pending.isEmpty() || paymentGateway == null) {
+            return Optional.empty();
+        }
+        PaymentSession session = pending.get();
+        // Remote call first, outside any transaction; settling is a conditional UPDATE anyway
+        PaymentGateway.Result result = fetchStatus(session);
+        if (result != null) {
+            transactionTemplate.executeWithoutResult(status -> settle(session, result));
+        }
+        return paymentSessionRepository.findById(session.getId()).map(PaymentSession::getStatus);
+    }
+
+    /**
+     * Check the next batch of due sessions with the gateway. The batch is claimed in a short
+     * transaction (SKIP LOCKED, next check pushed out by a lease) and the gateway is called
+     * after it commits, so no row lock is held across remote calls.
+     * @return true if the batch was full and more sessions are probably due
+     */
+    public boolean reconcileBatch() {
+        if (paymentGateway == null) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<PaymentSession> batch = transactionTemplate.execute(status -> {
+            List<PaymentSession> due = paymentSessionRepository.lockDueBatch(now, batchSize);
+            // Other instances skip these until the lease runs out, e.g. if this one dies mid-batch
+            due.forEach(session -> session.setNextCheckAt(now.plusSeconds(claimLeaseSeconds)));
+            return due;
+        });
+        if (batch == null || batch.isEmpty()) {
+            return false;
+        }
+
+        int settled = 0;
+        for (PaymentSession session : batch) {
+            PaymentGateway.Result result = fetchStatus(session);
+            // Unknown outcome (gateway unreachable) or still open: never expire on a failed check
+            if (result == null
+                    || result.status() == PaymentGateway.Status.PENDING && session.getExpiresAt().isAfter(now)) {
+                int attempts = session.getCheckAttempts() + 1;
+                paymentSessionRepository.reschedule(session.getId(), attempts, now.plus(backoff(attempts)));
+                continue;
+            }
+            settled++;
+            if (result.status() == PaymentGateway.Status.PENDING) {
+                paymentSessionRepository.settle(session.getId(), "expired", null, now);
+            } else {
+                transactionTemplate.executeWithoutResult(status -> settle(session, result));
+            }
+        }
+        log.debug("Reconciled {} payment sessions, {} settled", batch.size(), settled);
+        return batch.size() == batchSize;
+    }
+
+    // Null when the gateway could not be asked: the session stays as it is
+    private PaymentGateway.Result fetchStatus(PaymentSession session) {
+        try {
+            return paymentGateway.fetchStatus(session);
+        } catch (RuntimeException e) {
+            log.warn("Gateway status check failed for payment session {}: {}", session.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean settle(PaymentSession session, PaymentGateway.Result result) {
+        String status = switch (result.status()) {
+            case SUCCEEDED -> "completed";
+            case FAILED -> "failed";
+            case PENDING -> null;
+        };
+        if (status == null) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (paymentSessionRepository.settle(session.getId(), status, result.reference(), now) == 0) {
+            if ("completed".equals(status)
+                    && paymentSessionRepository.recordLatePayment(session.getId(), result.reference(), now) > 0) {
+                // The customer was charged for a closed checkout: the order is not paid, the money must go back
+                latePayments.increment();
+                log.error("Payment session {} for order {} was paid after it closed (reference {}): refund or reconcile",
+                        session.getId(), session.getOrderId(), result.reference());
+                return true;
+            }
+            return false;
+        }
+        log.info("Payment session {} for order {} {}", session.getId(), session.getOrderId(), status);
+        if ("completed".equals(status)) {
+            orderService.markPaid(session.getOrderId());
+        } else {
+            orderService.markPaymentFailed(session.getOrderId());
+        }
+        return true;
+    }
+
+    private Duration backoff(int attempts) {
+        long delay = initialDelaySeconds << Math.min(attempts, 20);
+        return Duration.ofSeconds(Math.min(delay, maxDelaySeconds));
+    }
+
+    private boolean signatureValid(String body, String signature) {
+        if (webhookKey == null || signature == null) {
+            return false;
+        }
+        String hex = signature.startsWith("sha256=") ? signature.substring(7) : signature;
+        byte[] expected = sign(webhookKey, body).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, hex.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static String sign(SecretKeySpec key, String body) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return HexFormat.of().formatHex(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Webhook signing unavailable", e);
+        }
+    }
+
+    private static PaymentGateway.Status parseStatus(String status) {
+        return switch (status.toLowerCase(Locale.ROOT)) {
+            case "succeeded", "completed", "paid", "captured" -> PaymentGateway.Status.SUCCEEDED;
+            case "failed", "cancelled", "canceled" -> PaymentGateway.Status.FAILED;
+            default -> PaymentGateway.Status.PENDING;
+        };
+    }
+}
@@ -2,19 +2,87 @@ package com.example.demo.service;
 
 import com.example.demo.entity.PharmacyProduct;
 import com.example.demo.dto.PharmacyProductDTO;
+import com.example.demo.event.EventJson;
 import com.example.demo.repository.PharmacyProductRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import jakarta.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class PharmacyProductService {
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    static final List<String> CSV_COLUMNS = List.of("id", "name", "description", "price", "category",
+            "inStock", "stockQuantity", "imageUrl", "prescriptionRequired");
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final String UPSERT_PREFIX = "INSERT INTO pharmacy_products (id, name, description, price, category, "
+            + "in_stock, stock_quantity, image_url, prescription_required, created_at) VALUES ";
+    private static final String UPSERT_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int UPSERT_COLUMNS = 10;
+    // A row without stockQuantity keeps the tracked stock (and the in_stock it implies)
+    private static final String UPSERT_SUFFIX = " ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, "
+            + "description = EXCLUDED.description, price = EXCLUDED.price, category = EXCLUDED.category, "
+            + "image_url = EXCLUDED.image_url, prescription_required = EXCLUDED.prescription_required, "
+            + "stock_quantity = COALESCE(EXCLUDED.stock_quantity, pharmacy_products.stock_quantity), "
+            + "in_stock = CASE WHEN EXCLUDED.stock_quantity IS NULL AND pharmacy_products.stock_quantity IS NOT NULL "
+            + "THEN pharmacy_products.stock_quantity > 0 ELSE EXCLUDED.in_stock END";
+
     private final PharmacyProductRepository productRepository;
     private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${pharmacy.patch.batch-size:500}")
+    private int patchBatchSize = 500;
+
+    @Value("${pharmacy.patch.max-items:20000}")
+    private int maxPatchItems = 20000;
+
+    @Value("${pharmacy.import.batch-size:500}")
+    private int importBatchSize = 500;
+
+    @Value("${pharmacy.import.max-record-chars:65536}")
+    private int maxImportRecordChars = CsvRecords.DEFAULT_MAX_RECORD_CHARS;
+
+    /**
+     * Outcome of a bulk import: imported counts distinct products upserted (a repeated id
+     * in one batch counts once), errors lists the first rejected rows by line number
+     */
+    public record ImportResult(long imported, long rejected, List<String> errors) {}
+
+    public record PatchResult(int updated, List<String> notFound) {}
 
     @Transactional
     public PharmacyProduct createProduct(PharmacyProductDTO dto) {
@@ -24,7 +92,11 @@ public class PharmacyProductService {
         product.setDescription(dto.getDescription());
         product.setPrice(dto.getPrice());
         product.setCategory(dto.getCategory());
-        product.setInStock(true);
+        if (dto.getStockQuantity() != null && dto.getStockQuantity() < 0) {
+            throw new RuntimeException("Stock quantity cannot be negative");
+        }
+        product.setStockQuantity(dto.getStockQuantity());
+        product.setInStock(dto.getStockQuantity() == null || dto.getStockQuantity() > 0);
         product.setPrescriptionRequired(dto.getPrescriptionRequired() != null ? dto.getPrescriptionRequired() : false);
 
         return productRepository.save(product);
@@ -53,10 +125,93 @@ public class PharmacyProductService {
 
     @Transactional
     public PharmacyProduct updateProduct(String id, PharmacyProductDTO dto) {
+        String problem = validatePatch(dto);
+        if (problem != null) {
+            throw new RuntimeException(problem);
+        }
+        // Managed entity: changed columns are written by dirty checking at commit
         PharmacyProduct product = getProductById(id);
-        entityManager.detach(product);
-        product = productRepository.findById(id).orElseThrow(() -> new RuntimeException("Product not found"));
+        applyPatch(product, dto);
+
+        if (dto.getStockQuantity() != null) {
+            productRepository.setStockQuantity(id, dto.getStockQuantity());
+            return getProductById(id);
+        }
+        return product;
+    }
+
+    /**
+     * Apply many partial updates in one transaction. Products are loaded pharmacy.patch.batch-size
+     * ids per SELECT, patched in memory and flushed as JDBC-batched UPDATEs of the changed columns
+     * only (see JpaConfig for the ordering that keeps them in one batch), then cleared so a
+     * catalogue-wide price sync runs in flat memory. Stock counts are one JDBC batch of the
+     * setStockQuantity statement at the end. All patches are
+     * validated before anything is written; unknown ids are reported, not fatal.
+     */
+    @Transactional
+    public PatchResult patchProducts(List<PharmacyProductDTO> patches) {
+        if (patches == null || patches.isEmpty()) {
+            throw new RuntimeException("No product updates given");
+        }
+        if (patches.size() > maxPatchItems) {
+            throw new RuntimeException("At most " + maxPatchItems + " product updates per request");
+        }
+        Map<String, PharmacyProductDTO> byId = new LinkedHashMap<>();
+        for (PharmacyProductDTO dto : patches) {
+            if (dto.getId() == null || dto.getId().isBlank()) {
+                throw new RuntimeException("Each product update needs an id");
+            }
+            String problem = validatePatch(dto);
+            if (problem != null) {
+                throw new RuntimeException(dto.getId() + ": " + problem);
+            }
+            // Later entries for the same id win, as if applied in order
+            byId.put(dto.getId().trim(), dto);
+        }
 
+        entityManager.unwrap(Session.class).setJdbcBatchSize(patchBatchSize);
+        List<String> ids = new ArrayList<>(byId.keySet());
+        List<String> notFound = new ArrayList<>();
+        List<MapSqlParameterSource> stockUpdates = new ArrayList<>();
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += patchBatchSize) {
+            List<String> chunk = ids.subList(from, Math.min(from + patchBatchSize, ids.size()));
+            Set<String> seen = new HashSet<>();
+            for (PharmacyProduct product : productRepository.findAllById(chunk)) {
+                PharmacyProductDTO dto = byId.get(product.getId());
+                applyPatch(product, dto);
+                if (dto.getStockQuantity() != null) {
+                    stockUpdates.add(new MapSqlParameterSource()
+                            .addValue("quantity", dto.getStockQuantity())
+                            .addValue("id", product.getId()));
+                }
+                seen.add(product.getId());
+                updated++;
+            }
+            for (String id : chunk) {
+                if (!seen.contains(id)) {
+                    notFound.add(id);
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+        }
+        // Same statement as setStockQuantity, sent as one JDBC batch after the entity flushes
+        if (!stockUpdates.isEmpty()) {
+            new NamedParameterJdbcTemplate(jdbcTemplate).batchUpdate(PharmacyProductRepository.SET_STOCK_SQL,
+                    stockUpdates.toArray(new MapSqlParameterSource[0]));
+        }
+        return new PatchResult(updated, notFound);
+    }
+
+    /**
+     * Copy the fields present in the patch onto the product; stockQuantity is not an entity
+     * write and is applied separately by the callers
+     */
+    static void applyPatch(PharmacyProduct product, PharmacyProductDTO dto) {
+        if (dto.getName() != null) {
+            product.setName(dto.getName().trim());
+        }
         if (dto.getPrice() != null) {
             product.setPrice(dto.getPrice());
         }
@@ -69,11 +224,283 @@ public class PharmacyProductService {
         if (dto.getCategory() != null) {
             product.setCategory(dto.getCategory());
         }
+        if (dto.getImageUrl() != null) {
+            product.setImageUrl(dto.getImageUrl());
+        }
         if (dto.getPrescriptionRequired() != null) {
             product.setPrescriptionRequired(dto.getPrescriptionRequired());
         }
+    }
 
-        return productRepository.save(product);
+    private static String validatePatch(PharmacyProductDTO dto) {
+        if (dto.getName() != null && dto.getName().isBlank()) {
+            return "name cannot be blank";
+        }
+        if (dto.getPrice() != null && (dto.getPrice() < 0 || dto.getPrice().isNaN())) {
+            return "price must be a non-negative number";
+        }
+        if (dto.getStockQuantity() != null && dto.getStockQuantity() < 0) {
+            return "Stock quantity cannot be negative";
+        }
+        return null;
+    }
+
+    /**
+     * Insert or update products from a CSV (header row required) or NDJSON stream.
+     * Rows are parsed one at a time and upserted by id in multi-row statements of
+     * pharmacy.import.batch-size, each committed on its own, so memory stays flat and a
+     * failed import can simply be re-run. Every row needs an id, so a re-run updates the
+     * same products instead of creating copies.
+     */
+    public ImportResult importProducts(InputStream in, String format) throws IOException {
+        ImportProgress progress = new ImportProgress();
+        List<PharmacyProductDTO> batch = new ArrayList<>(importBatchSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        if (FORMAT_NDJSON.equals(format)) {
+            String text;
+            long line = 0;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                PharmacyProductDTO dto;
+                try {
+                    dto = EventJson.mapper().readValue(text, PharmacyProductDTO.class);
+                } catch (IOException e) {
+                    progress.reject(line, "invalid JSON");
+                    continue;
+                }
+                collect(batch, dto, line, progress);
+            }
+        } else {
+            CsvRecords records = new CsvRecords(reader, maxImportRecordChars);
+            List<String> header = records.next();
+            if (header == null) {
+                throw new RuntimeException("Empty CSV");
+            }
+            Map<String, Integer> columns = csvColumns(header);
+            if (!columns.containsKey("id") || !columns.containsKey("name") || !columns.containsKey("price")) {
+                throw new RuntimeException("CSV header must include id, name and price");
+            }
+            while (true) {
+                List<String> fields;
+                try {
+                    fields = records.next();
+                } catch (CsvRecords.RecordTooLongException e) {
+                    progress.reject(e.line(), e.getMessage());
+                    continue;
+                }
+                if (fields == null) {
+                    break;
+                }
+                long line = records.line();
+                PharmacyProductDTO dto;
+                try {
+                    dto = fromCsv(fields, columns);
+                } catch (IllegalArgumentException e) {
+                    progress.reject(line, e.getMessage());
+                    continue;
+                }
+                collect(batch, dto, line, progress);
+            }
+        }
+        flush(batch, progress);
+        log.info("Product import finished: {} upserted, {} rejected", progress.imported, progress.rejected);
+        return new ImportResult(progress.imported, progress.rejected, progress.errors);
+    }
+
+    /**
+     * Write the whole catalogue as CSV or NDJSON. Rows come from a database cursor and are
+     * detached once written, so memory does not grow with the catalogue.
+     */
+    @Transactional(readOnly = true)
+    public void exportProducts(OutputStream out, String format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        boolean csv = !FORMAT_NDJSON.equals(format);
+        StringBuilder row = new StringBuilder(256);
+        if (csv) {
+            writer.write(String.join(",", CSV_COLUMNS));
+            writer.write('\n');
+        }
+        try (Stream<PharmacyProduct> products = productRepository.streamAll()) {
+            for (PharmacyProduct product : (Iterable<PharmacyProduct>) products::iterator) {
+                row.setLength(0);
+                if (csv) {
+                    Object[] values = {product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                            product.getCategory(), product.getInStock(), product.getStockQuantity(),
+                            product.getImageUrl(), product.getPrescriptionRequired()};
+                    for (int i = 0; i < values.length; i++) {
+                        if (i > 0) {
+                            row.append(',');
+                        }
+                        CsvRecords.appendField(row, values[i]);
+                    }
+                } else {
+                    row.append(EventJson.write(toDto(product)));
+                }
+                row.append('\n');
+                writer.write(row.toString());
+                entityManager.detach(product);
+            }
+        }
+        writer.flush();
+    }
+
+    private void collect(List<PharmacyProductDTO> batch, PharmacyProductDTO dto, long line, ImportProgress progress) {
+        String problem = dto.getId() == null || dto.getId().isBlank() ? "id is required" : validate(dto);
+        if (problem != null) {
+            progress.reject(line, problem);
+            return;
+        }
+        batch.add(dto);
+        progress.lastLine = line;
+        if (batch.size() >= importBatchSize) {
+            flush(batch, progress);
+        }
+    }
+
+    private void flush(List<PharmacyProductDTO> batch, ImportProgress progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // One statement cannot touch the same id twice; the last row for an id wins
+        Map<String, PharmacyProductDTO> byId = new LinkedHashMap<>();
+        for (PharmacyProductDTO dto : batch) {
+            byId.put(dto.getId().trim(), dto);
+        }
+        try {
+            upsertBatch(byId);
+            progress.imported += byId.size();
+        } catch (DataAccessException e) {
+            log.warn("Product import batch ending at line {} failed: {}", progress.lastLine, e.getMostSpecificCause().getMessage());
+            progress.rejected += batch.size();
+            progress.error("batch ending at line " + progress.lastLine + ": " + e.getMostSpecificCause().getMessage());
+        }
+        batch.clear();
+    }
+
+    private void upsertBatch(Map<String, PharmacyProductDTO> byId) {
+        StringBuilder sql = new StringBuilder(UPSERT_PREFIX.length() + UPSERT_SUFFIX.length() + byId.size() * (UPSERT_ROW.length() + 2));
+        sql.append(UPSERT_PREFIX);
+        Object[] args = new Object[byId.size() * UPSERT_COLUMNS];
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int i = 0;
+        for (Map.Entry<String, PharmacyProductDTO> entry : byId.entrySet()) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(UPSERT_ROW);
+            PharmacyProductDTO dto = entry.getValue();
+            Integer stock = dto.getStockQuantity();
+            args[i++] = entry.getKey();
+            args[i++] = dto.getName().trim();
+            args[i++] = dto.getDescription();
+            args[i++] = dto.getPrice();
+            args[i++] = dto.getCategory();
+            args[i++] = stock != null ? Boolean.valueOf(stock > 0) : dto.getInStock() == null || dto.getInStock();
+            args[i++] = stock;
+            args[i++] = dto.getImageUrl();
+            args[i++] = dto.getPrescriptionRequired() != null && dto.getPrescriptionRequired();
+            args[i++] = now;
+        }
+        sql.append(UPSERT_SUFFIX);
+        jdbcTemplate.update(sql.toString(), args);
+    }
+
+    private static String validate(PharmacyProductDTO dto) {
+        if (dto.getName() == null || dto.getName().isBlank()) {
+            return "name is required";
+        }
+        if (dto.getPrice() == null || dto.getPrice() < 0 || dto.getPrice().isNaN()) {
+            return "price must be a non-negative number";
+        }
+        if (dto.getStockQuantity() != null && dto.getStockQuantity() < 0) {
+            return "stockQuantity cannot be negative";
+        }
+        return null;
+    }
+
+    // Header names are matched ignoring case and underscores (stock_quantity = stockQuantity)
+    private static Map<String, Integer> csvColumns(List<String> header) {
+        Map<String, String> known = new HashMap<>();
+        for (String column : CSV_COLUMNS) {
+            known.put(column.toLowerCase(Locale.ROOT), column);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String key = header.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT);
+            String column = known.get(key);
+            if (column != null) {
+                columns.put(column, i);
+            }
+        }
+        return columns;
+    }
+
+    private static PharmacyProductDTO fromCsv(List<String> fields, Map<String, Integer> columns) {
+        PharmacyProductDTO dto = new PharmacyProductDTO();
+        dto.setId(field(fields, columns, "id"));
+        dto.setName(field(fields, columns, "name"));
+        dto.setDescription(field(fields, columns, "description"));
+        dto.setCategory(field(fields, columns, "category"));
+        dto.setImageUrl(field(fields, columns, "imageUrl"));
+        String price = field(fields, columns, "price");
+        String stock = field(fields, columns, "stockQuantity");
+        try {
+            dto.setPrice(price != null ? Float.valueOf(price) : null);
+            dto.setStockQuantity(stock != null ? Integer.valueOf(stock) : null);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number: " + e.getMessage());
+        }
+        dto.setInStock(flag(field(fields, columns, "inStock")));
+        dto.setPrescriptionRequired(flag(field(fields, columns, "prescriptionRequired")));
+        return dto;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Boolean flag(String value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "yes", "y", "1" -> Boolean.TRUE;
+            case "false", "no", "n", "0" -> Boolean.FALSE;
+            default -> throw new IllegalArgumentException("invalid boolean: " + value);
+        };
+    }
+
+    private static PharmacyProductDTO toDto(PharmacyProduct product) {
+        return new PharmacyProductDTO(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getCategory(), product.getInStock(), product.getStockQuantity(), product.getImageUrl(),
+                product.getPrescriptionRequired());
+    }
+
+    private static final class ImportProgress {
+        long imported;
+        long rejected;
+        long lastLine;
+        final List<String> errors = new ArrayList<>();
+
+        void reject(long line, String reason) {
+            rejected++;
+            error("line " + line + ": " + reason);
+        }
+
+        void error(String message) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(message);
+            }
+        }
     }
 
     @Transactional
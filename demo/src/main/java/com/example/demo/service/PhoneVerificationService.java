@@ -2,119 +2,121 @@ package com.example.demo.service;
 
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import at.favre.lib.crypto.bcrypt.BCrypt;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.Optional;
-import java.util.Random;
 
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class PhoneVerificationService {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MAX_ATTEMPTS = 5;
+
     private final UserRepository userRepository;
     private final TwilioService twilioService;
+    private final OtpStore otpStore;
+    private final SecretKeySpec hmacKey;
+    private final SecureRandom random = new SecureRandom();
 
     @Value("${otp.dev-mode:false}")
     private boolean devMode;
 
-    public void sendOTP(String userId, String phone) throws Exception {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // Check if OTP was sent recently (within 60 seconds)
-        if (user.getPhoneOtpLastSent() != null) {
-            long secondsSinceLastSend = java.time.temporal.ChronoUnit.SECONDS
-                    .between(user.getPhoneOtpLastSent(), LocalDateTime.now());
-            if (secondsSinceLastSend < 60) {
-                throw new RuntimeException("OTP recently sent. Please wait before resending.");
+    @Value("${otp.validity-minutes:10}")
+    private long validityMinutes = 10;
+
+    /**
+     * OTPs are hashed with HMAC-SHA256 under a server-side key instead of BCrypt: a 6-digit
+     * code cannot be protected by a slow hash anyway (only 900k candidates), so the key and
+     * the attempt limit do the protecting. Without otp.hmac-secret a random per-process key
+     * is used, which is enough for the in-memory store; a shared store refuses to start
+     * without it, since codes sent by one instance would never verify on another.
+     */
+    public PhoneVerificationService(UserRepository userRepository,
+                                    TwilioService twilioService,
+                                    OtpStore otpStore,
+                                    @Value("${otp.hmac-secret:}") String hmacSecret) {
+        this.userRepository = userRepository;
+        this.twilioService = twilioService;
+        this.otpStore = otpStore;
+        byte[] keyBytes;
+        if (hmacSecret == null || hmacSecret.isBlank()) {
+            if (otpStore.shared()) {
+                throw new IllegalStateException("otp.hmac-secret must be set when OTPs are stored in the database");
             }
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+        } else {
+            keyBytes = hmacSecret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.hmacKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+    }
+
+    public void sendOTP(String userId, String phone) throws Exception {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
         }
 
         // Generate OTP
         String otp = generateOTP();
-        String otpHash = hashOTP(otp);
-
-        // Update user
-        user.setPhone(phone);
-        user.setPhoneOtpHash(otpHash);
-        user.setPhoneOtpExpires(LocalDateTime.now().plusMinutes(10));
-        user.setPhoneOtpAttempts(0);
-        user.setPhoneOtpLastSent(LocalDateTime.now());
-
-        userRepository.save(user);
+        LocalDateTime now = LocalDateTime.now();
+        otpStore.save(userId, new OtpStore.PendingOtp(phone, hashOTP(userId, otp), now.plusMinutes(validityMinutes), now));
 
         // Send OTP
         if (devMode) {
-            System.out.println("[DEV] OTP for user " + userId + " to phone " + phone + ": " + otp);
+            // Dev only: the code stands in for the SMS; the phone number is never logged
+            log.info("[DEV] OTP for user {}: {}", userId, otp);
         } else {
             String smsBody = "Your verification code is " + otp;
-            System.out.println("[PhoneVerification] Sending OTP to " + phone + " for user " + userId);
+            log.debug("Sending OTP for user {}", userId);
             boolean sent = twilioService.sendSmsViaTwilio(phone, smsBody);
             if (!sent) {
-                // Rollback user changes if SMS fails
-                user.setPhoneOtpHash(null);
-                user.setPhoneOtpExpires(null);
-                user.setPhoneOtpLastSent(null);
-                userRepository.save(user);
+                // Drop the code if SMS fails so the user can retry straight away
+                otpStore.remove(userId);
                 throw new RuntimeException("Failed to send OTP. Please check your phone number and try again.");
             }
-            System.out.println("[PhoneVerification] OTP sent successfully to " + phone);
+            log.info("OTP sent for user {}", userId);
         }
     }
 
     public void verifyOTP(String userId, String otp) throws Exception {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        if (user.getPhoneOtpHash() == null || user.getPhoneOtpExpires() == null) {
-            throw new RuntimeException("No active OTP. Please resend.");
-        }
-
-        if (LocalDateTime.now().isAfter(user.getPhoneOtpExpires())) {
-            user.setPhoneOtpHash(null);
-            user.setPhoneOtpExpires(null);
-            userRepository.save(user);
-            throw new RuntimeException("OTP expired. Please resend.");
-        }
-
-        if (user.getPhoneOtpAttempts() != null && user.getPhoneOtpAttempts() >= 5) {
-            user.setPhoneOtpHash(null);
-            user.setPhoneOtpExpires(null);
-            user.setPhoneOtpAttempts(0);
-            userRepository.save(user);
-            throw new RuntimeException("Too many attempts. OTP reset. Please resend.");
-        }
-
-        if (!verifyOTPHash(otp, user.getPhoneOtpHash())) {
-            user.setPhoneOtpAttempts((user.getPhoneOtpAttempts() != null ? user.getPhoneOtpAttempts() : 0) + 1);
-            userRepository.save(user);
-            throw new RuntimeException("Incorrect OTP");
+        OtpStore.Attempt attempt = otpStore.verify(userId, hashOTP(userId, otp), MAX_ATTEMPTS);
+        switch (attempt.outcome()) {
+            case VERIFIED -> {
+                // Phone number and verified flag are written together, once
+                if (userRepository.markPhoneVerified(userId, attempt.phone()) == 0) {
+                    throw new RuntimeException("User not found");
+                }
+            }
+            case NOT_FOUND -> throw new RuntimeException("No active OTP. Please resend.");
+            case EXPIRED -> throw new RuntimeException("OTP expired. Please resend.");
+            case TOO_MANY_ATTEMPTS -> throw new RuntimeException("Too many attempts. OTP reset. Please resend.");
+            case INCORRECT -> throw new RuntimeException("Incorrect OTP");
         }
-
-        // Mark as verified
-        user.setPhoneVerified(true);
-        user.setPhoneOtpHash(null);
-        user.setPhoneOtpExpires(null);
-        user.setPhoneOtpAttempts(0);
-        user.setPhoneOtpLastSent(null);
-
-        userRepository.save(user);
     }
 
     private String generateOTP() {
-        Random random = new Random();
         int otp = 100000 + random.nextInt(900000);
         return String.valueOf(otp);
     }
 
-    private String hashOTP(String otp) {
-        return BCrypt.withDefaults().hashToString(12, otp.toCharArray());
-    }
-
-    private boolean verifyOTPHash(String otp, String hash) {
-        return BCrypt.verifyer().verify(otp.toCharArray(), hash).verified;
+    // Keyed by user so the same code never hashes the same for two users
+    private String hashOTP(String userId, String otp) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(hmacKey);
+            byte[] digest = mac.doFinal((userId + ":" + otp).getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("OTP hashing unavailable", e);
+        }
     }
 
     public Optional<User> findByEmail(String email) {
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.UUID;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.dto.PrescriptionDTO;
 import com.example.demo.entity.Prescription;
@@ -20,6 +21,7 @@ public class PrescriptionService {
     private final PrescriptionRepository prescriptionRepository;
     private final PrescriptionProducer prescriptionProducer;
 
+    @Transactional
     public Prescription createPrescription(PrescriptionDTO dto) {
         Prescription prescription = new Prescription();
         prescription.setId(UUID.randomUUID().toString());
@@ -46,7 +48,7 @@ public class PrescriptionService {
                 .status("active")
                 .action("created")
                 .build();
-        prescriptionProducer.publishPrescriptionEvent(event);
+        prescriptionProducer.enqueuePrescriptionEvent(event);
 
         return saved;
     }
@@ -68,6 +70,7 @@ public class PrescriptionService {
         return prescriptionRepository.findAll();
     }
 
+    @Transactional
     public Prescription updatePrescription(String id, PrescriptionDTO dto) {
         Prescription prescription = getPrescriptionById(id);
 
@@ -101,11 +104,12 @@ public class PrescriptionService {
                 .status("active")
                 .action("updated")
                 .build();
-        prescriptionProducer.publishPrescriptionEvent(event);
+        prescriptionProducer.enqueuePrescriptionEvent(event);
 
         return updated;
     }
 
+    @Transactional
     public void deletePrescription(String id) {
         Prescription prescription = getPrescriptionById(id);
         prescriptionRepository.deleteById(id);
@@ -118,7 +122,7 @@ public class PrescriptionService {
                 .status("cancelled")
                 .action("cancelled")
                 .build();
-        prescriptionProducer.publishPrescriptionEvent(event);
+        prescriptionProducer.enqueuePrescriptionEvent(event);
     }
 
     public Prescription refillPrescription(String id) {
@@ -1,25 +1,44 @@
 package com.example.demo.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
-import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.HexFormat;
 
 /**
  * Service for generating QR codes for payments
  * Used for payment collection via UPI, Stripe, PayPal, etc.
+ *
+ * Encoded images are cached by content, size and format: payment payloads are
+ * deterministic per order and amount, so repeat views of a payment page cost a cache
+ * lookup. The cache is bounded by total image bytes (app.payment.qr-cache-max-bytes).
  */
 @Service
-@RequiredArgsConstructor
 public class QRCodeService {
 
-    @Value("${app.payment.qr-size:300}")
-    private int qrSize;
+    private final int qrSize;
+    private final Cache<QrKey, byte[]> imageCache;
+
+    public QRCodeService(@Value("${app.payment.qr-size:300}") int qrSize,
+                         @Value("${app.payment.qr-cache-max-bytes:16777216}") long cacheMaxBytes) {
+        this.qrSize = qrSize;
+        this.imageCache = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((QrKey key, byte[] image) -> image.length + key.content().length())
+                .build();
+    }
 
     /**
      * Generate QR code for UPI payment
@@ -27,19 +46,22 @@ public class QRCodeService {
      */
     public String generateUPIQRCode(String upiId, String payeeName, Double amount, String orderId) {
         try {
-            String upiString = String.format(
-                    "upi://pay?pa=%s&pn=%s&am=%.2f&tn=Order%%20%s",
-                    upiId,
-                    payeeName.replace(" ", "%%20"),
-                    amount,
-                    orderId
-            );
-            return generateQRCode(upiString);
+            return generateQRCode(upiPayload(upiId, payeeName, amount, orderId));
         } catch (Exception e) {
             throw new RuntimeException("Failed to generate UPI QR code: " + e.getMessage());
         }
     }
 
+    public String upiPayload(String upiId, String payeeName, Double amount, String orderId) {
+        return String.format(
+                "upi://pay?pa=%s&pn=%s&am=%.2f&tn=Order%%20%s",
+                upiId,
+                payeeName.replace(" ", "%20"),
+                amount,
+                orderId
+        );
+    }
+
     /**
      * Generate QR code for payment link (e.g., Stripe, PayPal)
      */
@@ -52,18 +74,44 @@ public class QRCodeService {
     }
 
     /**
-     * Generate generic QR code from any text
-     * Returns Base64 encoded PNG image
+     * PNG bytes for the text, from the cache when the same content was encoded before
      */
-    private String generateQRCode(String qrCodeText) throws Exception {
-        MultiFormatWriter writer = new MultiFormatWriter();
-        BitMatrix bitMatrix = writer.encode(qrCodeText, BarcodeFormat.QR_CODE, qrSize, qrSize);
+    public byte[] generatePng(String qrCodeText) {
+        return imageCache.get(new QrKey(qrCodeText, qrSize, QrFormat.PNG), this::encodePng);
+    }
 
-        ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
-        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", pngOutputStream);
+    /**
+     * SVG for the text, drawn straight from the module matrix (no BufferedImage)
+     */
+    public byte[] generateSvg(String qrCodeText) {
+        return imageCache.get(new QrKey(qrCodeText, qrSize, QrFormat.SVG), this::encodeSvg);
+    }
 
-        byte[] qrCodeBytes = pngOutputStream.toByteArray();
-        return "data:image/png;base64," + Base64.getEncoder().encodeToString(qrCodeBytes);
+    public byte[] generate(String qrCodeText, QrFormat format) {
+        return format == QrFormat.SVG ? generateSvg(qrCodeText) : generatePng(qrCodeText);
+    }
+
+    /**
+     * Strong validator for the image of this text in this format, computed without encoding
+     * so conditional requests can be answered before touching ZXing
+     */
+    public String etag(String qrCodeText, QrFormat format) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((format.name() + ":" + qrSize + ":").getBytes(StandardCharsets.UTF_8));
+            byte[] hash = digest.digest(qrCodeText.getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generate generic QR code from any text
+     * Returns Base64 encoded PNG image
+     */
+    private String generateQRCode(String qrCodeText) {
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(generatePng(qrCodeText));
     }
 
     /**
@@ -76,4 +124,60 @@ public class QRCodeService {
             throw new RuntimeException("Failed to generate QR code: " + e.getMessage());
         }
     }
+
+    private byte[] encodeSvg(QrKey key) {
+        try {
+            // Zero size: one pixel per module, including the quiet zone
+            BitMatrix matrix = new MultiFormatWriter().encode(key.content(), BarcodeFormat.QR_CODE, 0, 0);
+            return renderSvg(matrix, key.size()).getBytes(StandardCharsets.UTF_8);
+        } catch (WriterException e) {
+            throw new RuntimeException("QR encoding failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * One path with a rectangle per horizontal run of dark modules, scaled by the viewBox
+     */
+    static String renderSvg(BitMatrix matrix, int size) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        StringBuilder svg = new StringBuilder(256 + width * height);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(size)
+                .append("\" height=\"").append(size)
+                .append("\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+                .append("\" shape-rendering=\"crispEdges\">")
+                .append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path fill=\"#000\" d=\"");
+        for (int y = 0; y < height; y++) {
+            int x = 0;
+            while (x < width) {
+                if (!matrix.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < width && matrix.get(x, y)) {
+                    x++;
+                }
+                int run = x - start;
+                svg.append('M').append(start).append(' ').append(y)
+                        .append('h').append(run).append("v1h-").append(run).append('z');
+            }
+        }
+        return svg.append("\"/></svg>").toString();
+    }
+
+    private byte[] encodePng(QrKey key) {
+        try {
+            BitMatrix bitMatrix = new MultiFormatWriter().encode(key.content(), BarcodeFormat.QR_CODE, key.size(), key.size());
+            ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
+            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", pngOutputStream);
+            return pngOutputStream.toByteArray();
+        } catch (WriterException | IOException e) {
+            throw new RuntimeException("QR encoding failed: " + e.getMessage(), e);
+        }
+    }
+
+    public enum QrFormat { PNG, SVG }
+
+    private record QrKey(String content, int size, QrFormat format) {}
 }
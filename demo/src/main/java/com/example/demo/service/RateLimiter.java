@@ -0,0 +1,35 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+
+/**
+ * Token-bucket rate limiting by key. The in-memory implementation limits each backend
+ * instance separately; an implementation over a shared store (selected with
+ * rate-limit.store) gives one limit across all instances.
+ */
+public interface RateLimiter {
+
+    /**
+     * Take one token from the bucket for the key under the given limit
+     */
+    Decision tryAcquire(String key, Limit limit);
+
+    /**
+     * Bucket of {@code capacity} tokens, refilled continuously at capacity per period
+     */
+    record Limit(String name, int capacity, Duration period) {
+        public Limit {
+            if (capacity < 1 || period.isZero() || period.isNegative()) {
+                throw new IllegalArgumentException("Invalid rate limit " + name);
+            }
+        }
+
+        double tokensPerNano() {
+            return capacity / (double) period.toNanos();
+        }
+    }
+
+    record Decision(boolean allowed, long retryAfterSeconds) {
+        public static final Decision ALLOWED = new Decision(true, 0);
+    }
+}
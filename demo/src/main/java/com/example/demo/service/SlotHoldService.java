@@ -0,0 +1,169 @@
+package com.example.demo.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.repository.AppointmentRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Short-lived holds on appointment slots while a patient completes a booking.
+ *
+ * Holds live only in memory: a concurrent map keyed by slot plus a hashed timing wheel
+ * for expiry, so placing, releasing and expiring a hold are O(1) and nothing is written
+ * to Postgres. Holds are per backend instance, so with several instances behind the load
+ * balancer a hold is advisory; the booking engine remains the authority on conflicts.
+ */
+@Service
+@Slf4j
+public class SlotHoldService {
+
+    public static final String SLOT_HELD_MESSAGE = "Time slot is currently held by another patient";
+
+    private final AppointmentRepository appointmentRepository;
+    private final long ttlMs;
+    private final HashedTimingWheel<Hold> wheel;
+
+    private final Map<String, Hold> holdsBySlot = new ConcurrentHashMap<>();
+    private final Map<String, Hold> holdsById = new ConcurrentHashMap<>();
+    private final Map<String, Hold> holdsByPatient = new ConcurrentHashMap<>();
+    private final Map<String, Set<Hold>> holdsByDoctorDate = new ConcurrentHashMap<>();
+
+    public SlotHoldService(AppointmentRepository appointmentRepository,
+                           @Value("${appointments.holds.ttl-seconds:120}") long ttlSeconds,
+                           @Value("${appointments.holds.tick-ms:1000}") long tickMs) {
+        this.appointmentRepository = appointmentRepository;
+        this.ttlMs = ttlSeconds * 1000;
+        this.wheel = new HashedTimingWheel<>(tickMs, 512, System.currentTimeMillis());
+    }
+
+    public record Hold(String id, String doctorId, String patientId, LocalDate date, LocalTime time, long expiresAtMs) {
+        public LocalDateTime expiresAt() {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAtMs), ZoneId.systemDefault());
+        }
+    }
+
+    /**
+     * Hold a slot for a patient. A patient holds at most one slot: a new hold replaces the
+     * previous one, and holding the same slot again extends it.
+     */
+    public Hold hold(String doctorId, LocalDate date, LocalTime time, String patientId) {
+        if (appointmentRepository.existsActiveBooking(doctorId, date, time, "", AppointmentBookingEngine.INACTIVE_STATUSES)) {
+            throw new ConflictException(AppointmentBookingEngine.SLOT_TAKEN_MESSAGE);
+        }
+
+        long now = System.currentTimeMillis();
+        Hold hold = new Hold(UUID.randomUUID().toString(), doctorId, patientId, date, time, now + ttlMs);
+        String slot = slotKey(doctorId, date, time);
+
+        Hold winner = holdsBySlot.compute(slot, (key, current) ->
+                current == null || current.expiresAtMs() <= now || current.patientId().equals(patientId) ? hold : current);
+        if (winner != hold) {
+            throw new ConflictException(SLOT_HELD_MESSAGE);
+        }
+
+        holdsById.put(hold.id(), hold);
+        holdsByDoctorDate.compute(doctorDateKey(doctorId, date), (key, holds) -> {
+            Set<Hold> updated = holds != null ? holds : ConcurrentHashMap.newKeySet();
+            updated.add(hold);
+            return updated;
+        });
+        Hold previous = holdsByPatient.put(patientId, hold);
+        if (previous != null) {
+            remove(previous);
+        }
+        wheel.schedule(hold, hold.expiresAtMs());
+        return hold;
+    }
+
+    public Hold getHold(String holdId) {
+        Hold hold = holdsById.get(holdId);
+        if (hold == null || hold.expiresAtMs() <= System.currentTimeMillis()) {
+            throw new RuntimeException("Hold not found or expired");
+        }
+        return hold;
+    }
+
+    public void release(String holdId) {
+        Hold hold = holdsById.get(holdId);
+        if (hold != null) {
+            holdsByPatient.remove(hold.patientId(), hold);
+            remove(hold);
+        }
+    }
+
+    /**
+     * Whether someone other than the given patient holds the slot right now
+     */
+    public boolean isHeldByOther(String doctorId, LocalDate date, LocalTime time, String patientId) {
+        Hold hold = holdsBySlot.get(slotKey(doctorId, date, time));
+        return hold != null && hold.expiresAtMs() > System.currentTimeMillis() && !hold.patientId().equals(patientId);
+    }
+
+    /**
+     * Times on the given day currently held for the doctor by anyone but the viewer
+     */
+    public Set<LocalTime> heldTimes(String doctorId, LocalDate date, String viewerId) {
+        Set<Hold> holds = holdsByDoctorDate.get(doctorDateKey(doctorId, date));
+        if (holds == null || holds.isEmpty()) {
+            return Set.of();
+        }
+        long now = System.currentTimeMillis();
+        Set<LocalTime> times = new HashSet<>();
+        for (Hold hold : holds) {
+            if (hold.expiresAtMs() > now && !hold.patientId().equals(viewerId)) {
+                times.add(hold.time());
+            }
+        }
+        return times;
+    }
+
+    /**
+     * The booking went through: drop the patient's hold on that slot
+     */
+    public void consume(String doctorId, LocalDate date, LocalTime time, String patientId) {
+        Hold hold = holdsBySlot.get(slotKey(doctorId, date, time));
+        if (hold != null && hold.patientId().equals(patientId)) {
+            release(hold.id());
+        }
+    }
+
+    @Scheduled(fixedRateString = "${appointments.holds.tick-ms:1000}")
+    public void expireHolds() {
+        wheel.advance(System.currentTimeMillis(), hold -> {
+            // Released or replaced holds are skipped by the identity checks in remove()
+            holdsByPatient.remove(hold.patientId(), hold);
+            remove(hold);
+        });
+    }
+
+    private void remove(Hold hold) {
+        holdsById.remove(hold.id(), hold);
+        holdsBySlot.remove(slotKey(hold.doctorId(), hold.date(), hold.time()), hold);
+        holdsByDoctorDate.computeIfPresent(doctorDateKey(hold.doctorId(), hold.date()), (key, holds) -> {
+            holds.remove(hold);
+            return holds.isEmpty() ? null : holds;
+        });
+    }
+
+    private static String slotKey(String doctorId, LocalDate date, LocalTime time) {
+        return doctorId + '|' + date + '|' + time;
+    }
+
+    private static String doctorDateKey(String doctorId, LocalDate date) {
+        return doctorId + '|' + date;
+    }
+}
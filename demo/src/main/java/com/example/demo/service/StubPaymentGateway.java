@@ -0,0 +1,43 @@
+package com.example.demo.service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entity.PaymentSession;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local stand-in for the payment provider, only with app.payment.gateway=stub.
+ * Sessions report app.payment.stub.outcome (pending unless set to succeeded or failed)
+ * unless a test settles them explicitly with {@link #settle}. Never enable it in
+ * production: with outcome=succeeded every checkout counts as paid.
+ */
+@Component
+@ConditionalOnProperty(name = "app.payment.gateway", havingValue = "stub")
+@Slf4j
+public class StubPaymentGateway implements PaymentGateway {
+
+    private final Status defaultStatus;
+    private final Map<String, Status> settled = new ConcurrentHashMap<>();
+
+    public StubPaymentGateway(@Value("${app.payment.stub.outcome:pending}") String outcome) {
+        this.defaultStatus = Status.valueOf(outcome.trim().toUpperCase(Locale.ROOT));
+        log.warn("Using the stub payment gateway: unsettled sessions report {}", defaultStatus);
+    }
+
+    public void settle(String sessionId, Status status) {
+        settled.put(sessionId, status);
+    }
+
+    @Override
+    public Result fetchStatus(PaymentSession session) {
+        Status status = settled.getOrDefault(session.getId(), defaultStatus);
+        return new Result(status, status == Status.PENDING ? null : "stub_" + session.getId());
+    }
+}
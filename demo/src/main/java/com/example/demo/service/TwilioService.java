@@ -1,6 +1,7 @@
 package com.example.demo.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.InitializingBean;
@@ -11,6 +12,7 @@ import java.util.concurrent.*;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class TwilioService implements InitializingBean {
     @Value("${twilio.account-sid:}")
     private String accountSid;
@@ -28,6 +30,9 @@ public class TwilioService implements InitializingBean {
     private String defaultCountryCode;
 
     private boolean isInitialized = false;
+
+    // "+" followed by the default country code digits, prepended to numbers without a "+"
+    private String countryPrefix = "+";
     
     // DEADLOCK FIX: Executor for SMS sending with timeout protection
     private final ExecutorService smsExecutor = Executors.newFixedThreadPool(5, r -> {
@@ -38,30 +43,33 @@ public class TwilioService implements InitializingBean {
 
     @Override
     public void afterPropertiesSet() throws Exception {
+        if (defaultCountryCode != null && !defaultCountryCode.isBlank()) {
+            String cc = defaultCountryCode.trim();
+            countryPrefix = cc.startsWith("+") ? cc : "+" + cc;
+        }
         if (accountSid != null && !accountSid.isEmpty() && authToken != null && !authToken.isEmpty()) {
             com.twilio.Twilio.init(accountSid, authToken);
             isInitialized = true;
-            System.out.println("[Twilio] Initialized successfully with Account SID: " + accountSid.substring(0, Math.min(4, accountSid.length())) + "...");
+            log.info("Twilio initialized with Account SID {}...", accountSid.substring(0, Math.min(4, accountSid.length())));
         } else {
-            System.err.println("[Twilio] WARNING: Credentials not configured. SMS sending will fail.");
+            log.warn("Twilio credentials not configured. SMS sending will fail.");
         }
     }
 
     public boolean sendSmsViaTwilio(String toPhone, String body) {
         try {
             if (!isInitialized) {
-                System.err.println("[Twilio] Not initialized. Check TWILIO_ACCOUNT_SID and TWILIO_AUTH_TOKEN.");
+                log.error("Twilio not initialized. Check TWILIO_ACCOUNT_SID and TWILIO_AUTH_TOKEN.");
                 return false;
             }
 
             String toE164 = normalizePhoneE164(toPhone);
             if (toE164 == null) {
-                System.err.println("[Twilio] Failed to normalize phone: " + toPhone);
+                log.warn("Twilio SMS not sent: recipient number could not be normalized");
                 return false;
             }
 
-            System.out.println("[Twilio] Sending SMS to: " + toE164 + " | Body: " + body.substring(0, Math.min(50, body.length())));
-
+            // Neither the number nor the body is logged: bodies carry one-time codes
             // DEADLOCK FIX: Execute SMS send in separate thread with 10-second timeout
             // If Twilio is slow or stuck, this returns false instead of blocking Kafka listener
             Future<Boolean> result = smsExecutor.submit(() -> {
@@ -72,7 +80,7 @@ public class TwilioService implements InitializingBean {
                                 messagingServiceSid,
                                 body
                         ).create();
-                        System.out.println("[Twilio] SMS sent successfully via Messaging Service. SID: " + message.getSid());
+                        log.info("Twilio SMS sent via Messaging Service, SID {}", message.getSid());
                         return true;
                     } else if (twilioPhoneNumber != null && !twilioPhoneNumber.isEmpty()) {
                         Message message = Message.creator(
@@ -80,14 +88,14 @@ public class TwilioService implements InitializingBean {
                                 new PhoneNumber(twilioPhoneNumber),
                                 body
                         ).create();
-                        System.out.println("[Twilio] SMS sent successfully from: " + twilioPhoneNumber + " to " + toE164 + " | SID: " + message.getSid());
+                        log.info("Twilio SMS sent from the configured number, SID {}", message.getSid());
                         return true;
                     } else {
-                        System.err.println("[Twilio] Neither Messaging Service SID nor Phone Number configured");
+                        log.error("Twilio SMS not sent: neither Messaging Service SID nor phone number configured");
                         return false;
                     }
                 } catch (Exception e) {
-                    System.err.println("[Twilio] SMS send failed: " + e.getMessage());
+                    log.warn("Twilio SMS send failed: {}", e.getMessage());
                     return false;
                 }
             });
@@ -97,59 +105,48 @@ public class TwilioService implements InitializingBean {
             try {
                 return result.get(10, TimeUnit.SECONDS);
             } catch (TimeoutException e) {
-                System.err.println("[Twilio] SMS send TIMEOUT after 10 seconds to: " + toE164);
+                log.warn("Twilio SMS send timed out after 10 seconds");
                 result.cancel(true);
                 return false;
             } catch (ExecutionException | InterruptedException e) {
-                System.err.println("[Twilio] SMS send interrupted/error: " + e.getMessage());
+                log.warn("Twilio SMS send interrupted/error: {}", e.getMessage());
                 return false;
             }
         } catch (Exception e) {
-            System.err.println("[Twilio] Unexpected error in sendSmsViaTwilio: " + e.getMessage());
+            log.error("Unexpected error in sendSmsViaTwilio: {}", e.getMessage(), e);
             return false;
         }
     }
 
 
+    /**
+     * Numbers starting with "+" are returned trimmed; otherwise the digits are kept and
+     * prefixed with the default country code. Returns null if there are no digits.
+     * Called for every inbound SMS, so it makes a single pass without regex or logging.
+     */
     public String normalizePhoneE164(String phone) {
-        if (phone == null || phone.isEmpty()) {
-            System.err.println("[Twilio] Phone number is null or empty");
+        if (phone == null) {
             return null;
         }
-
-        phone = phone.trim();
-        if (phone.startsWith("+")) {
-            return phone;
-        }
-
-        // Extract only digits
-        String digits = phone.replaceAll("[^0-9]", "");
-        if (digits.isEmpty()) {
-            System.err.println("[Twilio] No digits found in phone: " + phone);
-            return null;
+        String trimmed = phone.trim();
+        if (trimmed.startsWith("+")) {
+            return trimmed;
         }
 
-        if (defaultCountryCode != null && !defaultCountryCode.isEmpty()) {
-            String cc = defaultCountryCode.trim();
-            if (cc.startsWith("+")) {
-                String result = cc + digits;
-                System.out.println("[Twilio] Normalized phone (with country code): " + result);
-                return result;
-            } else {
-                String result = "+" + cc + digits;
-                System.out.println("[Twilio] Normalized phone (with country code): " + result);
-                return result;
+        StringBuilder result = new StringBuilder(countryPrefix.length() + trimmed.length());
+        result.append(countryPrefix);
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c >= '0' && c <= '9') {
+                result.append(c);
             }
         }
-
-        String result = "+" + digits;
-        System.out.println("[Twilio] Normalized phone (default): " + result);
-        return result;
+        return result.length() > countryPrefix.length() ? result.toString() : null;
     }
 
     public Optional<com.twilio.rest.api.v2010.account.Message> receiveSms(String fromNumber, String toNumber, String body) {
         // This is typically called from the webhook
-        System.out.println("[Twilio SMS] From=" + fromNumber + " To=" + toNumber + " Body=" + body);
+        log.debug("Inbound Twilio SMS received ({} chars)", body != null ? body.length() : 0);
         return Optional.empty();
     }
 }
\ No newline at end of file
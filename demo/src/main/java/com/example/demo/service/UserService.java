@@ -4,8 +4,8 @@ import com.example.demo.dto.UserDTO;
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import at.favre.lib.crypto.bcrypt.BCrypt;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.List;
@@ -13,8 +13,11 @@ import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class UserService {
     private final UserRepository userRepository;
+    private final DoctorDirectoryService doctorDirectoryService;
+    private final PasswordHashingService passwordHashingService;
 
     public User registerUser(UserDTO dto) {
         if (userRepository.findByEmail(dto.getEmail()).isPresent()) {
@@ -34,16 +37,20 @@ public class UserService {
         user.setLicense(dto.getLicense());
         user.setPhoneVerified(false);
 
-        return userRepository.save(user);
+        return refreshDirectoryIfDoctor(null, userRepository.save(user));
     }
 
     public User loginUser(String email, String password) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Invalid email or password"));
 
-        if (!checkPassword(password, user.getPasswordHash())) {
+        PasswordHashingService.Verification verification = passwordHashingService.verify(password, user.getPasswordHash());
+        if (!verification.verified()) {
             throw new RuntimeException("Invalid email or password");
         }
+        if (verification.needsRehash()) {
+            rehashInBackground(user, password);
+        }
 
         return user;
     }
@@ -55,6 +62,7 @@ public class UserService {
 
     public User updateUser(String id, UserDTO dto) {
         User user = getUserById(id);
+        String previousRole = user.getRole();
         
         if (dto.getName() != null) {
             user.setName(dto.getName());
@@ -76,11 +84,14 @@ public class UserService {
             user.setLicense(dto.getLicense());
         }
 
-        return userRepository.save(user);
+        return refreshDirectoryIfDoctor(previousRole, userRepository.save(user));
     }
 
     public void deleteUser(String id) {
         userRepository.deleteById(id);
+        if (doctorDirectoryService.contains(id)) {
+            doctorDirectoryService.refresh();
+        }
     }
 
     public List<User> getAllUsers() {
@@ -92,17 +103,45 @@ public class UserService {
     }
 
     public String hashPassword(String password) {
-        return BCrypt.withDefaults().hashToString(12, password.toCharArray());
+        return passwordHashingService.hash(password);
     }
 
     public boolean checkPassword(String password, String hash) {
-        return BCrypt.verifyer().verify(password.toCharArray(), hash).verified;
+        return passwordHashingService.verify(password, hash).verified();
+    }
+
+    /**
+     * The stored hash uses an old cost factor: replace it once the new hash is ready.
+     * Best effort; if the hashing pool is busy the next login tries again.
+     */
+    private void rehashInBackground(User user, String password) {
+        String oldHash = user.getPasswordHash();
+        passwordHashingService.hashAsync(password)
+                .thenAccept(newHash -> {
+                    if (userRepository.replacePasswordHash(user.getId(), oldHash, newHash) > 0) {
+                        log.info("Rehashed password for user {} at cost {}", user.getId(), passwordHashingService.getCost());
+                    }
+                })
+                .exceptionally(e -> {
+                    log.debug("Password rehash skipped for user {}: {}", user.getId(), e.getMessage());
+                    return null;
+                });
     }
 
     public User updateUserImage(String id, String imageUrl) {
         User user = getUserById(id);
+        String previousRole = user.getRole();
         user.setImageUrl(imageUrl);
-        return userRepository.save(user);
+        return refreshDirectoryIfDoctor(previousRole, userRepository.save(user));
+    }
+
+    // Keep the public doctor listing in step with writes made on this instance; a user who
+    // stopped being a doctor must leave it as well
+    private User refreshDirectoryIfDoctor(String previousRole, User user) {
+        if ("doctor".equals(previousRole) || "doctor".equals(user.getRole())) {
+            doctorDirectoryService.refresh();
+        }
+        return user;
     }
 
     public Optional<User> findByEmail(String email) {
@@ -0,0 +1,104 @@
+package com.example.demo.benchmark;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import com.example.demo.event.AppointmentEvent;
+import com.example.demo.kafka.serialization.TypedJsonDeserializer;
+
+/**
+ * Records/sec a listener can deserialize for one poll of appointment events.
+ *
+ * typeHeaders is the previous setup: a shared JsonDeserializer with Event as the
+ * default type, resolving the concrete class from the __TypeId__ header per record.
+ * typed is the per-topic {@link TypedJsonDeserializer} with a pre-built reader.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=ConsumerDeserializationBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConsumerDeserializationBenchmark {
+
+    private static final String TOPIC = "appointments";
+    private static final int POLL_SIZE = 500;
+
+    @Param({"typeHeaders", "typed"})
+    public String deserializer;
+
+    private Deserializer<?> valueDeserializer;
+    private byte[][] values;
+    private Headers[] headers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JsonSerializer<Object> serializer = new JsonSerializer<>();
+        serializer.configure(Map.of(), false);
+
+        values = new byte[POLL_SIZE][];
+        headers = new Headers[POLL_SIZE];
+        for (int i = 0; i < POLL_SIZE; i++) {
+            headers[i] = new RecordHeaders();
+            values[i] = serializer.serialize(TOPIC, headers[i], appointmentEvent(i));
+        }
+
+        if ("typed".equals(deserializer)) {
+            valueDeserializer = new TypedJsonDeserializer<>(AppointmentEvent.class);
+        } else {
+            JsonDeserializer<Object> json = new JsonDeserializer<>();
+            json.configure(Map.of(
+                    JsonDeserializer.VALUE_DEFAULT_TYPE, "com.example.demo.event.Event",
+                    JsonDeserializer.TRUSTED_PACKAGES, "*"), false);
+            valueDeserializer = json;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POLL_SIZE)
+    public void poll(Blackhole blackhole) {
+        for (int i = 0; i < POLL_SIZE; i++) {
+            blackhole.consume(valueDeserializer.deserialize(TOPIC, headers[i], values[i]));
+        }
+    }
+
+    private static AppointmentEvent appointmentEvent(int i) {
+        return AppointmentEvent.builder()
+                .appointmentId(UUID.randomUUID().toString())
+                .patientId(UUID.randomUUID().toString())
+                .patientName("Patient " + i)
+                .doctorId(UUID.randomUUID().toString())
+                .doctorName("Dr. Morgan")
+                .date(LocalDate.now().plusDays(i % 30))
+                .time(String.format("%02d:%02d", 8 + i % 10, (i % 4) * 15))
+                .reason("Consultation")
+                .status("scheduled")
+                .visitType("in_person")
+                .action("created")
+                .build();
+    }
+}
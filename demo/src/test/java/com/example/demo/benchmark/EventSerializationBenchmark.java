@@ -0,0 +1,130 @@
+package com.example.demo.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import com.example.demo.event.AppointmentEvent;
+import com.example.demo.event.OrderEvent;
+import com.example.demo.kafka.serialization.AvroEventDeserializer;
+import com.example.demo.kafka.serialization.AvroEventSerializer;
+import com.example.demo.kafka.serialization.LocalSchemaRegistry;
+
+/**
+ * Serialize / deserialize throughput and encoded size of the JSON event format
+ * (type headers, snake_case names) against Avro single-object encoding.
+ * Bytes per event are printed once per trial; JSON sizes include the type header.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=EventSerializationBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EventSerializationBenchmark {
+
+    private static final String TOPIC = "events-bench";
+
+    @Param({"json", "avro"})
+    public String format;
+
+    @Param({"appointment", "order"})
+    public String eventType;
+
+    private Serializer<Object> serializer;
+    private Deserializer<Object> deserializer;
+    private Object event;
+    private byte[] encoded;
+    private Headers encodedHeaders;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setUp() {
+        event = "order".equals(eventType) ? orderEvent() : appointmentEvent();
+
+        if ("avro".equals(format)) {
+            LocalSchemaRegistry registry = new LocalSchemaRegistry("classpath*:avro/*.avsc");
+            serializer = new AvroEventSerializer(registry, event.getClass());
+            deserializer = new AvroEventDeserializer(registry, event.getClass());
+        } else {
+            serializer = new JsonSerializer<>();
+            serializer.configure(Map.of(), false);
+            deserializer = new JsonDeserializer<>();
+            deserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "*"), false);
+        }
+
+        encodedHeaders = new RecordHeaders();
+        encoded = serializer.serialize(TOPIC, encodedHeaders, event);
+        int headerBytes = 0;
+        for (var header : encodedHeaders) {
+            headerBytes += header.key().length() + header.value().length;
+        }
+        System.out.printf("%n%s %s: %d bytes/event (%d value + %d header)%n",
+                format, eventType, encoded.length + headerBytes, encoded.length, headerBytes);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, new RecordHeaders(), event);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return deserializer.deserialize(TOPIC, encodedHeaders, encoded);
+    }
+
+    private static AppointmentEvent appointmentEvent() {
+        return AppointmentEvent.builder()
+                .appointmentId(UUID.randomUUID().toString())
+                .patientId(UUID.randomUUID().toString())
+                .patientName("Jordan Smith")
+                .doctorId(UUID.randomUUID().toString())
+                .doctorName("Dr. Alex Morgan")
+                .date(LocalDate.now().plusDays(3))
+                .time("10:30")
+                .reason("Follow-up consultation")
+                .status("scheduled")
+                .visitType("in_person")
+                .action("created")
+                .build();
+    }
+
+    private static OrderEvent orderEvent() {
+        return OrderEvent.builder()
+                .orderId(UUID.randomUUID().toString())
+                .patientId(UUID.randomUUID().toString())
+                .pharmacyId(UUID.randomUUID().toString())
+                .totalPrice(42.75)
+                .status("pending")
+                .orderDate(LocalDateTime.now())
+                .items(List.of(
+                        new OrderEvent.OrderItemEvent(UUID.randomUUID().toString(), 2, 12.50),
+                        new OrderEvent.OrderItemEvent(UUID.randomUUID().toString(), 1, 17.75)))
+                .action("created")
+                .build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+
+/**
+ * Login verifications per second for each BCrypt cost factor, single threaded, so the
+ * score is logins/sec per core. Use it to pick security.password.bcrypt-cost for the
+ * hardware: each step up halves the throughput.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=PasswordHashingBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PasswordHashingBenchmark {
+
+    private static final char[] PASSWORD = "correct horse battery staple".toCharArray();
+
+    @Param({"10", "11", "12", "13"})
+    public int cost;
+
+    private String hash;
+
+    @Setup
+    public void setup() {
+        hash = BCrypt.withDefaults().hashToString(cost, PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return BCrypt.verifyer().verify(PASSWORD, hash).verified;
+    }
+}
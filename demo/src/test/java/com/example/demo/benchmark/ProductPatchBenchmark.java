@@ -0,0 +1,151 @@
+package com.example.demo.benchmark;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Products price-updated per second with the statements each update path sends:
+ * "single" is the old PUT /products/{id} loop (two SELECTs and a full-row UPDATE per
+ * product, each in its own transaction), "bulk" is PATCH /products (one SELECT per chunk
+ * and JDBC-batched UPDATEs of the changed column, one transaction).
+ *
+ * Needs a PostgreSQL server; works on a temporary table only. Defaults match
+ * docker-compose, override with -Dbenchmark.jdbc-url, -Dbenchmark.jdbc-user, -Dbenchmark.jdbc-password.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=ProductPatchBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProductPatchBenchmark {
+
+    private static final int CATALOGUE = 20_000;
+    private static final int PATCH = 500;
+
+    @Param({"single", "bulk"})
+    public String mode;
+
+    private Connection connection;
+    private List<String> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.jdbc-url", "jdbc:postgresql://localhost:5432/pranikov_uphill"),
+                System.getProperty("benchmark.jdbc-user", "uphill_user"),
+                System.getProperty("benchmark.jdbc-password", "1234"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMP TABLE bench_products (id varchar(255) PRIMARY KEY, name varchar(255) NOT NULL, "
+                    + "description text, price real NOT NULL, category varchar(255), in_stock boolean, "
+                    + "stock_quantity integer, image_url varchar(255), prescription_required boolean, created_at timestamp)");
+            statement.execute("INSERT INTO bench_products SELECT 'p' || g, 'Product ' || g, 'Description of product ' || g, "
+                    + "(g % 500) + 0.99, 'category-' || (g % 40), true, NULL, NULL, false, now() "
+                    + "FROM generate_series(1, " + CATALOGUE + ") g");
+            statement.execute("ANALYZE bench_products");
+        }
+        ids = new ArrayList<>(CATALOGUE);
+        for (int i = 1; i <= CATALOGUE; i++) {
+            ids.add("p" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATCH)
+    public int update() throws SQLException {
+        int start = ThreadLocalRandom.current().nextInt(CATALOGUE - PATCH);
+        List<String> chunk = ids.subList(start, start + PATCH);
+        return "bulk".equals(mode) ? bulk(chunk) : single(chunk);
+    }
+
+    private int single(List<String> chunk) throws SQLException {
+        connection.setAutoCommit(true);
+        int updated = 0;
+        try (PreparedStatement select = connection.prepareStatement("SELECT * FROM bench_products WHERE id = ?");
+             PreparedStatement update = connection.prepareStatement("UPDATE bench_products SET name = ?, description = ?, "
+                     + "price = ?, category = ?, in_stock = ?, image_url = ?, prescription_required = ? WHERE id = ?")) {
+            for (String id : chunk) {
+                String name = null;
+                String description = null;
+                String category = null;
+                float price = 0;
+                for (int read = 0; read < 2; read++) {
+                    select.setString(1, id);
+                    try (ResultSet rs = select.executeQuery()) {
+                        rs.next();
+                        name = rs.getString("name");
+                        description = rs.getString("description");
+                        category = rs.getString("category");
+                        price = rs.getFloat("price");
+                    }
+                }
+                update.setString(1, name);
+                update.setString(2, description);
+                update.setFloat(3, price + 0.01f);
+                update.setString(4, category);
+                update.setBoolean(5, true);
+                update.setString(6, null);
+                update.setBoolean(7, false);
+                update.setString(8, id);
+                updated += update.executeUpdate();
+            }
+        }
+        return updated;
+    }
+
+    private int bulk(List<String> chunk) throws SQLException {
+        connection.setAutoCommit(false);
+        int updated = 0;
+        try (PreparedStatement select = connection.prepareStatement("SELECT * FROM bench_products WHERE id = ANY (?)");
+             PreparedStatement update = connection.prepareStatement("UPDATE bench_products SET price = ? WHERE id = ?")) {
+            Array array = connection.createArrayOf("varchar", chunk.toArray());
+            select.setArray(1, array);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    update.setFloat(1, rs.getFloat("price") + 0.01f);
+                    update.setString(2, rs.getString("id"));
+                    update.addBatch();
+                }
+            }
+            for (int count : update.executeBatch()) {
+                updated += count;
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+        return updated;
+    }
+}
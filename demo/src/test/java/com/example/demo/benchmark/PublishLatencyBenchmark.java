@@ -0,0 +1,117 @@
+package com.example.demo.benchmark;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import com.example.demo.event.AppointmentEvent;
+import com.example.demo.kafka.producer.EventPublisher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Publish latency of {@link EventPublisher} against an embedded broker for
+ * different linger.ms / batch.size combinations.
+ *
+ * awaitAck measures the latency a synchronous (critical) publish adds to a request;
+ * burst measures how long 100 pipelined asynchronous sends take to be acknowledged.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=PublishLatencyBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class PublishLatencyBenchmark {
+
+    private static final String TOPIC = "appointments-bench";
+    private static final int BURST = 100;
+
+    @Param({"0", "5", "20"})
+    public int lingerMs;
+
+    @Param({"16384", "131072"})
+    public int batchSize;
+
+    private EmbeddedKafkaKraftBroker broker;
+    private DefaultKafkaProducerFactory<String, Object> producerFactory;
+    private EventPublisher publisher;
+    private AppointmentEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        broker = new EmbeddedKafkaKraftBroker(1, 3, TOPIC);
+        broker.afterPropertiesSet();
+
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "snappy");
+        producerFactory = new DefaultKafkaProducerFactory<>(props);
+
+        publisher = new EventPublisher(new KafkaTemplate<>(producerFactory), new SimpleMeterRegistry());
+        event = AppointmentEvent.builder()
+                .appointmentId(UUID.randomUUID().toString())
+                .patientId(UUID.randomUUID().toString())
+                .doctorId(UUID.randomUUID().toString())
+                .date(LocalDate.now().plusDays(3))
+                .time("10:30")
+                .reason("Follow-up consultation")
+                .status("scheduled")
+                .visitType("in_person")
+                .action("created")
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        producerFactory.destroy();
+        broker.destroy();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public SendResult<String, Object> awaitAck() throws Exception {
+        return publisher.publish(TOPIC, event.getAppointmentId(), event).get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void burst() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[BURST];
+        for (int i = 0; i < BURST; i++) {
+            futures[i] = publisher.publish(TOPIC, event.getAppointmentId(), event);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.service.QRCodeService;
+
+/**
+ * Cost of one uncached payment QR in each output form: the Base64 data URI embedded in
+ * the payment JSON, raw PNG bytes and SVG from the binary endpoint. The cache is sized to
+ * zero so every call encodes; the response size per QR is printed once at setup.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=QrCodeBenchmark
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QrCodeBenchmark {
+
+    @Param({"base64", "png", "svg"})
+    public String mode;
+
+    private QRCodeService qrCodeService;
+    private String payload;
+
+    @Setup
+    public void setup() {
+        qrCodeService = new QRCodeService(300, 0);
+        payload = qrCodeService.upiPayload("pharmacy@okbank", "Demo Pharmacy", 1249.50, "0f8c2a4e-7b1d-4c3e-9a55-2d6e8f1b3c70");
+        System.out.println(mode + ": " + encode().length + " bytes per QR");
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return switch (mode) {
+            case "png" -> qrCodeService.generatePng(payload);
+            case "svg" -> qrCodeService.generateSvg(payload);
+            default -> qrCodeService.generateQRCodeBase64(payload).getBytes();
+        };
+    }
+}
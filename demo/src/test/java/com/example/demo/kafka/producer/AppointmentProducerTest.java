@@ -2,22 +2,33 @@ package com.example.demo.kafka.producer;
 
 import java.time.LocalDate;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.messaging.Message;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.example.demo.event.AppointmentEvent;
+import com.example.demo.service.OutboxService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 /**
  * Unit tests for AppointmentProducer
@@ -28,9 +39,20 @@ public class AppointmentProducerTest {
     @Mock
     private KafkaTemplate<String, Object> kafkaTemplate;
 
-    @InjectMocks
+    @Mock
+    private OutboxService outboxService;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private AppointmentProducer appointmentProducer;
 
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        appointmentProducer = new AppointmentProducer(new EventPublisher(kafkaTemplate, meterRegistry), outboxService);
+        ReflectionTestUtils.setField(appointmentProducer, "appointmentTopic", "appointments");
+    }
+
     @Test
     public void testPublishAppointmentEvent_Success() {
         // Arrange
@@ -45,13 +67,15 @@ public class AppointmentProducerTest {
                 .action("created")
                 .build();
 
-        when(kafkaTemplate.send(any(Message.class))).thenReturn(null);
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(acknowledged(event));
 
         // Act
-        assertDoesNotThrow(() -> appointmentProducer.publishAppointmentEvent(event));
+        CompletableFuture<SendResult<String, Object>> future = appointmentProducer.publishAppointmentEvent(event);
 
         // Assert
+        assertTrue(future.isDone());
         verify(kafkaTemplate, times(1)).send(any(Message.class));
+        assertEquals(1, meterRegistry.get("kafka.publish.latency").tag("outcome", "success").timer().count());
     }
 
     @Test
@@ -86,9 +110,32 @@ public class AppointmentProducerTest {
                 .action("updated")
                 .build();
 
-        when(kafkaTemplate.send(any(Message.class))).thenReturn(null);
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(acknowledged(event));
 
         assertDoesNotThrow(() -> appointmentProducer.publishAppointmentEvent(event));
         verify(kafkaTemplate, times(1)).send(any(Message.class));
     }
+
+    @Test
+    public void testPublishAppointmentEvent_AsyncFailureIsCounted() {
+        // Broker-side failures surface through the future instead of being swallowed
+        AppointmentEvent event = AppointmentEvent.builder()
+                .appointmentId("apt-failed")
+                .action("created")
+                .build();
+
+        when(kafkaTemplate.send(any(Message.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Not enough replicas")));
+
+        CompletableFuture<SendResult<String, Object>> future = appointmentProducer.publishAppointmentEvent(event);
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(1.0, meterRegistry.get("kafka.publish.failures").tag("topic", "appointments").counter().count());
+    }
+
+    private CompletableFuture<SendResult<String, Object>> acknowledged(AppointmentEvent event) {
+        ProducerRecord<String, Object> record = new ProducerRecord<>("appointments", event.getAppointmentId(), event);
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("appointments", 0), 0L, 0, 0L, 0, 0);
+        return CompletableFuture.completedFuture(new SendResult<>(record, metadata));
+    }
 }
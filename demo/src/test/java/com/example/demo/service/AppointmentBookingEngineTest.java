@@ -0,0 +1,134 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.repository.AppointmentRepository;
+
+/**
+ * Concurrency tests for AppointmentBookingEngine.
+ * The repository is backed by an in-memory slot set, so any gap between the
+ * availability check and the insert shows up as a double booking.
+ */
+public class AppointmentBookingEngineTest {
+
+    private static final LocalDate DATE = LocalDate.now().plusDays(1);
+    private static final int BOOKINGS = 1000;
+
+    private final Set<String> bookedSlots = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger doubleBookings = new AtomicInteger();
+    private AppointmentBookingEngine engine;
+
+    @BeforeEach
+    public void setUp() {
+        AppointmentRepository repository = mock(AppointmentRepository.class);
+        when(repository.existsActiveBooking(anyString(), any(), any(), anyString(), any()))
+                .thenAnswer(inv -> bookedSlots.contains(slot(inv.getArgument(0), inv.getArgument(2))));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        engine = new AppointmentBookingEngine(repository, transactionTemplate, 64, 30000);
+    }
+
+    @Test
+    public void testConcurrentBookings_SameDoctor_EachSlotBookedOnce() throws Exception {
+        int slots = 10;
+        int[] outcome = runBookings(i -> "doctor-1", i -> LocalTime.of(9 + i % slots, 0));
+
+        assertEquals(slots, outcome[0]);
+        assertEquals(BOOKINGS - slots, outcome[1]);
+        assertEquals(0, doubleBookings.get());
+    }
+
+    @Test
+    public void testConcurrentBookings_ManyDoctors_SameSlot() throws Exception {
+        int doctors = 100;
+        int[] outcome = runBookings(i -> "doctor-" + (i % doctors), i -> LocalTime.of(10, 30));
+
+        assertEquals(doctors, outcome[0]);
+        assertEquals(BOOKINGS - doctors, outcome[1]);
+        assertEquals(0, doubleBookings.get());
+    }
+
+    @Test
+    public void testBookTakenSlot_Throws() {
+        LocalTime nine = LocalTime.of(9, 0);
+        engine.book("doctor-1", DATE, nine, null, () -> take("doctor-1", nine));
+
+        ConflictException e = assertThrows(ConflictException.class,
+                () -> engine.book("doctor-1", DATE, nine, null, () -> take("doctor-1", nine)));
+        assertEquals(AppointmentBookingEngine.SLOT_TAKEN_MESSAGE, e.getMessage());
+    }
+
+    /**
+     * Start all bookings at once and return {booked, rejected as taken}
+     */
+    private int[] runBookings(IntFunction<String> doctor,
+                              IntFunction<LocalTime> time) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(BOOKINGS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger taken = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>(BOOKINGS);
+            for (int i = 0; i < BOOKINGS; i++) {
+                String doctorId = doctor.apply(i);
+                LocalTime slotTime = time.apply(i);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        engine.book(doctorId, DATE, slotTime, null, () -> take(doctorId, slotTime));
+                        booked.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        if (AppointmentBookingEngine.SLOT_TAKEN_MESSAGE.equals(e.getMessage())) {
+                            taken.incrementAndGet();
+                        } else {
+                            throw e;
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new int[]{booked.get(), taken.get()};
+    }
+
+    private String take(String doctorId, LocalTime time) {
+        // Widen the window between check and insert so a missing lock would show up
+        Thread.yield();
+        if (!bookedSlots.add(slot(doctorId, time))) {
+            doubleBookings.incrementAndGet();
+        }
+        return doctorId + "@" + time;
+    }
+
+    private static String slot(String doctorId, LocalTime time) {
+        return doctorId + "|" + DATE + "|" + time;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.service;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Streaming CSV reading and field quoting used by the catalogue import/export
+ */
+public class CsvRecordsTest {
+
+    @Test
+    public void testQuotedFieldsAndLineNumbers() throws Exception {
+        CsvRecords records = new CsvRecords(new StringReader(
+                "name,price\r\n\"Cough syrup, 100ml\",4.5\n\n\"Say \"\"ahh\"\"\nstrips\",2\nlast,"));
+
+        assertEquals(List.of("name", "price"), records.next());
+        assertEquals(1, records.line());
+        assertEquals(List.of("Cough syrup, 100ml", "4.5"), records.next());
+        assertEquals(2, records.line());
+        assertEquals(List.of("Say \"ahh\"\nstrips", "2"), records.next());
+        assertEquals(4, records.line());
+        assertEquals(List.of("last", ""), records.next());
+        assertEquals(6, records.line());
+        assertNull(records.next());
+    }
+
+    @Test
+    public void testUnclosedQuoteRejectedAtCap() throws Exception {
+        CsvRecords records = new CsvRecords(new StringReader(
+                "a,1\n\"broken,2\nb,3\nc,4\n"), 12);
+
+        assertEquals(List.of("a", "1"), records.next());
+        CsvRecords.RecordTooLongException e = assertThrows(CsvRecords.RecordTooLongException.class, records::next);
+        assertEquals(2, e.line());
+        // Reading resumes after the physical line the cap was hit on
+        assertEquals(List.of("c", "4"), records.next());
+        assertEquals(4, records.line());
+        assertNull(records.next());
+    }
+
+    @Test
+    public void testAppendFieldRoundTrips() throws Exception {
+        StringBuilder row = new StringBuilder();
+        CsvRecords.appendField(row, "plain");
+        row.append(',');
+        CsvRecords.appendField(row, "a \"quoted\", value");
+        row.append(',');
+        CsvRecords.appendField(row, null);
+
+        assertEquals(List.of("plain", "a \"quoted\", value", ""), new CsvRecords(new StringReader(row.toString())).next());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.service.OtpStore.Outcome;
+
+/**
+ * Attempt limits and single use of codes in InMemoryOtpStore
+ */
+public class InMemoryOtpStoreTest {
+
+    private static final String USER = "user-1";
+    private static final int MAX_ATTEMPTS = 5;
+
+    private InMemoryOtpStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new InMemoryOtpStore(10, 1000);
+    }
+
+    @Test
+    public void testVerify_CorrectCode_ConsumedOnce() {
+        store.save(USER, pending("hash", LocalDateTime.now().plusMinutes(10)));
+
+        OtpStore.Attempt attempt = store.verify(USER, "hash", MAX_ATTEMPTS);
+
+        assertEquals(Outcome.VERIFIED, attempt.outcome());
+        assertEquals("+15550100", attempt.phone());
+        assertEquals(Outcome.NOT_FOUND, store.verify(USER, "hash", MAX_ATTEMPTS).outcome());
+    }
+
+    @Test
+    public void testVerify_TooManyAttempts_CodeReset() {
+        store.save(USER, pending("hash", LocalDateTime.now().plusMinutes(10)));
+
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            assertEquals(Outcome.INCORRECT, store.verify(USER, "wrong", MAX_ATTEMPTS).outcome());
+        }
+
+        assertEquals(Outcome.TOO_MANY_ATTEMPTS, store.verify(USER, "hash", MAX_ATTEMPTS).outcome());
+        assertEquals(Outcome.NOT_FOUND, store.verify(USER, "hash", MAX_ATTEMPTS).outcome());
+    }
+
+    @Test
+    public void testVerify_Expired() {
+        store.save(USER, pending("hash", LocalDateTime.now().minusSeconds(1)));
+
+        assertEquals(Outcome.EXPIRED, store.verify(USER, "hash", MAX_ATTEMPTS).outcome());
+    }
+
+    @Test
+    public void testConcurrentVerify_SingleSuccess() throws Exception {
+        store.save(USER, pending("hash", LocalDateTime.now().plusMinutes(10)));
+        int threads = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Outcome>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return store.verify(USER, "hash", threads).outcome();
+            }));
+        }
+        start.countDown();
+
+        int verified = 0;
+        for (Future<Outcome> result : results) {
+            if (result.get() == Outcome.VERIFIED) {
+                verified++;
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(1, verified);
+    }
+
+    private static OtpStore.PendingOtp pending(String hash, LocalDateTime expiresAt) {
+        return new OtpStore.PendingOtp("+15550100", hash, expiresAt, LocalDateTime.now());
+    }
+}
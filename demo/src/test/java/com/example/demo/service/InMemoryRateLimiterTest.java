@@ -0,0 +1,65 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Token bucket behaviour of InMemoryRateLimiter against a manual clock
+ */
+public class InMemoryRateLimiterTest {
+
+    private static final RateLimiter.Limit LIMIT = new RateLimiter.Limit("test", 3, Duration.ofSeconds(30));
+
+    private final AtomicLong now = new AtomicLong();
+    private InMemoryRateLimiter limiter;
+
+    @BeforeEach
+    public void setUp() {
+        limiter = new InMemoryRateLimiter(4, now::get);
+    }
+
+    @Test
+    public void testBurstUpToCapacity_ThenRejectedWithRetryAfter() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("ip:1", LIMIT).allowed());
+        }
+
+        RateLimiter.Decision rejected = limiter.tryAcquire("ip:1", LIMIT);
+        assertFalse(rejected.allowed());
+        assertEquals(10, rejected.retryAfterSeconds());
+        assertTrue(limiter.tryAcquire("ip:2", LIMIT).allowed());
+    }
+
+    @Test
+    public void testTokensRefillOverTime() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("ip:1", LIMIT);
+        }
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+
+        assertTrue(limiter.tryAcquire("ip:1", LIMIT).allowed());
+        assertFalse(limiter.tryAcquire("ip:1", LIMIT).allowed());
+    }
+
+    @Test
+    public void testSweep_DropsFullBucketsOnly() {
+        limiter.tryAcquire("ip:1", LIMIT);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("ip:2", LIMIT);
+        }
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        limiter.sweep();
+
+        assertEquals(1, limiter.size());
+    }
+}
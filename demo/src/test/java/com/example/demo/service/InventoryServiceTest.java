@@ -0,0 +1,67 @@
+package com.example.demo.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.repository.InventoryReservationRepository;
+
+/**
+ * Reservation batching in InventoryService, with the JDBC layer mocked
+ */
+public class InventoryServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        inventoryService = new InventoryService(jdbcTemplate, mock(InventoryReservationRepository.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReserve_OneBatchInProductOrder() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] {1, 1});
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        quantities.put("prod-b", 2);
+        quantities.put("prod-a", 3);
+
+        inventoryService.reserve("order-1", quantities);
+
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), args.capture());
+        assertEquals(2, args.getValue().size());
+        // Sorted by product id so concurrent checkouts lock rows in the same order
+        assertArrayEquals(new Object[] {3, 3, "prod-a", 3}, args.getValue().get(0));
+        assertArrayEquals(new Object[] {2, 2, "prod-b", 2}, args.getValue().get(1));
+    }
+
+    @Test
+    public void testReserve_ShortProductFailsWholeOrder() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] {1, 0});
+
+        ConflictException e = assertThrows(ConflictException.class,
+                () -> inventoryService.reserve("order-1", Map.of("prod-a", 1, "prod-b", 5)));
+        assertEquals(InventoryService.OUT_OF_STOCK_MESSAGE + ": prod-b", e.getMessage());
+    }
+
+    @Test
+    public void testReserve_RejectsNonPositiveQuantity() {
+        assertThrows(RuntimeException.class, () -> inventoryService.reserve("order-1", Map.of("prod-a", 0)));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.entity.Message;
+
+/**
+ * Grouping and acknowledgement in MessageBatchWriter, with the JDBC layer mocked
+ */
+public class MessageBatchWriterTest {
+
+    private final AtomicInteger statements = new AtomicInteger();
+    private final AtomicInteger rows = new AtomicInteger();
+    private final List<String> rejectedConversations = new ArrayList<>();
+    private MessageBatchWriter writer;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(inv -> {
+            Object[] args = inv.getArgument(1);
+            for (int i = 1; i < args.length; i += 8) {
+                if (rejectedConversations.contains(args[i])) {
+                    throw new DataIntegrityViolationException("conversation missing");
+                }
+            }
+            statements.incrementAndGet();
+            rows.addAndGet(args.length / 8);
+            return args.length / 8;
+        });
+        writer = new MessageBatchWriter(jdbcTemplate, 10_000, 100, 20);
+        writer.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    public void testConcurrentAppends_GroupedIntoMultiRowInserts() throws Exception {
+        List<CompletableFuture<Message>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(writer.append(message("conversation-" + (i % 10))));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1000, rows.get());
+        assertTrue(statements.get() <= 100, "expected grouped inserts, got " + statements.get());
+    }
+
+    @Test
+    public void testFailedRow_OnlyItsFutureFails() throws Exception {
+        rejectedConversations.add("deleted");
+
+        CompletableFuture<Message> ok = writer.append(message("conversation-1"));
+        CompletableFuture<Message> bad = writer.append(message("deleted"));
+
+        assertEquals("conversation-1", ok.get(5, TimeUnit.SECONDS).getConversationId());
+        assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAppendsRacingStop_AllCompleted() throws Exception {
+        List<CompletableFuture<Message>> futures = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread producer = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 500; i++) {
+                    futures.add(writer.append(message("conversation-" + i % 10)));
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        started.await();
+        writer.stop();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        // Queued before the stop, drained by it, or written directly after: none left hanging
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        assertEquals(2000, rows.get());
+    }
+
+    private static Message message(String conversationId) {
+        Message message = new Message();
+        message.setId(UUID.randomUUID().toString());
+        message.setConversationId(conversationId);
+        message.setSenderType("twilio");
+        message.setDirection("inbound");
+        message.setBody("hello");
+        return message;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.service;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.entity.Order;
+import com.example.demo.kafka.producer.OrderProducer;
+import com.example.demo.repository.OrderItemRepository;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.PaymentSessionRepository;
+
+/**
+ * Order status transitions, with the conditional UPDATE emulated by a compare-and-set on one row
+ */
+public class OrderServiceTest {
+
+    private static final String ORDER_ID = "order-1";
+
+    private final AtomicReference<String> status = new AtomicReference<>();
+    private final AtomicInteger events = new AtomicInteger();
+    private PaymentSessionRepository paymentSessionRepository;
+    private OrderService orderService;
+
+    @BeforeEach
+    public void setUp() {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.transition(anyString(), anyCollection(), anyString(), any())).thenAnswer(inv -> {
+            Collection<String> from = inv.getArgument(1);
+            String to = inv.getArgument(2);
+            synchronized (status) {
+                if (!from.contains(status.get())) {
+                    return 0;
+                }
+                status.set(to);
+                return 1;
+            }
+        });
+        when(orderRepository.findById(ORDER_ID)).thenAnswer(inv -> {
+            Order order = new Order();
+            order.setId(ORDER_ID);
+            order.setUserId("user-1");
+            order.setTotal(10f);
+            order.setStatus(status.get());
+            return Optional.of(order);
+        });
+        OrderProducer orderProducer = mock(OrderProducer.class);
+        doAnswer(inv -> events.incrementAndGet()).when(orderProducer).enqueueOrderEvent(any());
+        paymentSessionRepository = mock(PaymentSessionRepository.class);
+        orderService = new OrderService(orderRepository, mock(OrderItemRepository.class), orderProducer, mock(InventoryService.class),
+                paymentSessionRepository);
+    }
+
+    @Test
+    public void testLifecycle_EachStepPublishesOneEvent() {
+        status.set(OrderStateMachine.PENDING);
+
+        assertEquals("processing", orderService.updateOrderStatus(ORDER_ID, "processing").getStatus());
+        assertEquals("shipped", orderService.updateOrderStatus(ORDER_ID, "Shipped").getStatus());
+        assertEquals("delivered", orderService.updateOrderStatus(ORDER_ID, "delivered").getStatus());
+        assertEquals(3, events.get());
+    }
+
+    @Test
+    public void testInvalidTransitionsRejectedWithoutEvent() {
+        status.set(OrderStateMachine.PENDING);
+
+        ConflictException skip = assertThrows(ConflictException.class, () -> orderService.updateOrderStatus(ORDER_ID, "delivered"));
+        assertTrue(skip.getMessage().startsWith(OrderService.INVALID_TRANSITION_MESSAGE));
+        assertThrows(RuntimeException.class, () -> orderService.updateOrderStatus(ORDER_ID, "lost"));
+        assertThrows(RuntimeException.class, () -> orderService.updateOrderStatus(ORDER_ID, "pending"));
+        assertEquals(OrderStateMachine.PENDING, status.get());
+        assertEquals(0, events.get());
+    }
+
+    @Test
+    public void testCancel_ExpiresPendingPaymentSession() {
+        status.set(OrderStateMachine.PENDING);
+
+        orderService.updateOrderStatus(ORDER_ID, "cancelled");
+        verify(paymentSessionRepository).expirePending(eq(ORDER_ID), any());
+    }
+
+    @Test
+    public void testStaleExpectedStatus_ReportsConcurrentUpdate() {
+        status.set(OrderStateMachine.SHIPPED);
+
+        ConflictException e = assertThrows(ConflictException.class,
+                () -> orderService.updateOrderStatus(ORDER_ID, "cancelled", "processing"));
+        assertEquals(OrderService.CONCURRENT_UPDATE_MESSAGE, e.getMessage());
+        assertEquals(OrderStateMachine.SHIPPED, status.get());
+    }
+
+    @Test
+    public void testConflictingTransitions_ExactlyOneWins() throws Exception {
+        int threads = 16;
+        for (int round = 0; round < 50; round++) {
+            status.set(OrderStateMachine.PROCESSING);
+            events.set(0);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger applied = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                String target = i % 2 == 0 ? "shipped" : "cancelled";
+                futures[i] = pool.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.updateOrderStatus(ORDER_ID, target);
+                        applied.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        assertTrue(e.getMessage().startsWith(OrderService.INVALID_TRANSITION_MESSAGE));
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            pool.shutdown();
+
+            assertEquals(1, applied.get());
+            assertEquals(threads - 1, rejected.get());
+            assertEquals(1, events.get());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.support.SendResult;
+
+import com.example.demo.entity.OutboxEvent;
+import com.example.demo.event.EventJson;
+import com.example.demo.kafka.producer.EventPublisher;
+import com.example.demo.repository.OutboxEventRepository;
+
+/**
+ * Outbox relay failure handling, with the producer and repository mocked
+ */
+public class OutboxServiceTest {
+
+    private OutboxEventRepository repository;
+    private EventPublisher eventPublisher;
+    private OutboxService outboxService;
+
+    @BeforeEach
+    public void setUp() {
+        repository = mock(OutboxEventRepository.class);
+        eventPublisher = mock(EventPublisher.class);
+        outboxService = new OutboxService(repository, eventPublisher, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailedRowBacksOffAndHoldsBackItsKey() {
+        OutboxEvent first = row("e1", "k1");
+        OutboxEvent second = row("e2", "k1");
+        OutboxEvent other = row("e3", "k2");
+        when(repository.lockNextBatch(any(), anyInt())).thenReturn(List.of(first, second, other));
+        // The first send is accepted and fails later, once the rest of the batch is submitted
+        CompletableFuture<SendResult<String, Object>> firstSend = new CompletableFuture<>();
+        when(eventPublisher.publish(anyString(), eq("k1"), any()))
+                .thenReturn(firstSend)
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(eventPublisher.publish(anyString(), eq("k2"), any())).thenAnswer(inv -> {
+            firstSend.completeExceptionally(new IllegalStateException("broker timeout"));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertFalse(outboxService.relayBatch());
+
+        assertEquals(1, first.getAttempts());
+        assertTrue(first.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        // Delivered, but behind a failed row of the same key: left pending, not retried as a failure
+        assertEquals(0, second.getAttempts());
+        assertNull(second.getNextAttemptAt());
+        ArgumentCaptor<List<String>> published = ArgumentCaptor.forClass(List.class);
+        verify(repository).markPublished(published.capture(), any());
+        assertEquals(List.of("e3"), published.getValue());
+    }
+
+    @Test
+    public void testRefusedSendStopsSubmittingTheBatch() {
+        when(repository.lockNextBatch(any(), anyInt())).thenReturn(List.of(row("e1", "k1"), row("e2", "k2"), row("e3", "k3")));
+        when(eventPublisher.publish(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("no metadata")));
+
+        outboxService.relayBatch();
+
+        verify(eventPublisher, times(1)).publish(anyString(), anyString(), any());
+        verify(repository, never()).markPublished(any(), any());
+    }
+
+    private static OutboxEvent row(String id, String key) {
+        OutboxEvent row = new OutboxEvent();
+        row.setId(id);
+        row.setTopic("orders");
+        row.setMessageKey(key);
+        row.setEventType(String.class.getName());
+        row.setPayload(EventJson.write("payload-" + id));
+        row.setAttempts(0);
+        return row;
+    }
+}
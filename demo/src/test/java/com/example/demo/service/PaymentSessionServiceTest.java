@@ -0,0 +1,164 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.entity.PaymentSession;
+import com.example.demo.repository.PaymentSessionRepository;
+
+/**
+ * Webhook verification, idempotent settlement and reconciliation against the stub gateway
+ */
+public class PaymentSessionServiceTest {
+
+    private static final String SECRET = "whsec_test";
+
+    private PaymentSessionRepository repository;
+    private OrderService orderService;
+    private StubPaymentGateway gateway;
+    private PaymentSessionService service;
+    private final AtomicBoolean settled = new AtomicBoolean();
+
+    @BeforeEach
+    public void setUp() {
+        repository = mock(PaymentSessionRepository.class);
+        orderService = mock(OrderService.class);
+        gateway = new StubPaymentGateway("pending");
+        service = new PaymentSessionService(repository, orderService, Optional.of(gateway),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(), SECRET);
+        // Behaves like the conditional UPDATE: only the first settle matches the pending row
+        when(repository.settle(anyString(), anyString(), any(), any())).thenAnswer(inv -> settled.compareAndSet(false, true) ? 1 : 0);
+    }
+
+    @Test
+    public void testWebhook_InvalidSignatureRejected() {
+        String body = "{\"sessionId\":\"s1\",\"status\":\"succeeded\"}";
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.handleWebhook(body, "sha256=deadbeef"));
+        assertEquals(PaymentSessionService.INVALID_SIGNATURE_MESSAGE, e.getMessage());
+        assertThrows(RuntimeException.class, () -> service.handleWebhook(body, null));
+        verify(orderService, never()).markPaid(anyString());
+    }
+
+    @Test
+    public void testWebhook_RetriedDeliveryPaysOrderOnce() {
+        when(repository.findById("s1")).thenReturn(Optional.of(session("s1", LocalDateTime.now().plusHours(1))));
+        String body = "{\"sessionId\":\"s1\",\"status\":\"succeeded\",\"reference\":\"pay_123\"}";
+        String signature = "sha256=" + sign(body);
+
+        assertTrue(service.handleWebhook(body, signature));
+        assertFalse(service.handleWebhook(body, signature));
+
+        verify(repository, times(2)).settle(eq("s1"), eq("completed"), eq("pay_123"), any());
+        verify(orderService, times(1)).markPaid("order-s1");
+    }
+
+    @Test
+    public void testReconcileBatch_PendingBacksOffAndSucceededSettles() {
+        PaymentSession waiting = session("waiting", LocalDateTime.now().plusHours(1));
+        PaymentSession paid = session("paid", LocalDateTime.now().plusHours(1));
+        gateway.settle("paid", PaymentGateway.Status.SUCCEEDED);
+        when(repository.lockDueBatch(any(), anyInt())).thenReturn(List.of(waiting, paid));
+
+        assertFalse(service.reconcileBatch());
+
+        ArgumentCaptor<LocalDateTime> nextCheck = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).reschedule(eq("waiting"), eq(1), nextCheck.capture());
+        assertTrue(nextCheck.getValue().isAfter(LocalDateTime.now().plusSeconds(60)));
+        verify(repository).settle(eq("paid"), eq("completed"), eq("stub_paid"), any());
+        verify(repository, never()).settle(eq("waiting"), anyString(), any(), any());
+        verify(orderService).markPaid("order-paid");
+    }
+
+    @Test
+    public void testNoGateway_NothingSettledByPolling() {
+        service = new PaymentSessionService(repository, orderService, Optional.empty(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(), SECRET);
+        when(repository.findFirstByOrderIdAndStatus("order-s1", "pending"))
+                .thenReturn(Optional.of(session("s1", LocalDateTime.now().plusHours(1))));
+
+        assertFalse(service.reconcileBatch());
+        assertTrue(service.reconcileOrder("order-s1").isEmpty());
+        verify(repository, never()).lockDueBatch(any(), anyInt());
+        verify(repository, never()).settle(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    public void testReconcileBatch_ExpiredPendingSessionExpires() {
+        PaymentSession stale = session("stale", LocalDateTime.now().minusMinutes(1));
+        when(repository.lockDueBatch(any(), anyInt())).thenReturn(List.of(stale));
+
+        service.reconcileBatch();
+
+        verify(repository).settle(eq("stale"), eq("expired"), any(), any());
+        verify(orderService, never()).markPaid(anyString());
+    }
+
+    @Test
+    public void testReconcileBatch_GatewayErrorKeepsExpiredSessionPending() {
+        PaymentSession stale = session("stale", LocalDateTime.now().minusMinutes(1));
+        PaymentGateway failing = mock(PaymentGateway.class);
+        when(failing.fetchStatus(any())).thenThrow(new RuntimeException("gateway down"));
+        service = new PaymentSessionService(repository, orderService, Optional.of(failing),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(), SECRET);
+        when(repository.lockDueBatch(any(), anyInt())).thenReturn(List.of(stale));
+
+        service.reconcileBatch();
+
+        verify(repository, never()).settle(anyString(), anyString(), any(), any());
+        verify(repository).reschedule(eq("stale"), eq(1), any());
+    }
+
+    @Test
+    public void testWebhook_SuccessAfterExpiryIsRecorded() {
+        settled.set(true); // the session was already expired
+        when(repository.findById("s1")).thenReturn(Optional.of(session("s1", LocalDateTime.now().minusMinutes(1))));
+        when(repository.recordLatePayment(eq("s1"), eq("pay_late"), any())).thenReturn(1);
+        String body = "{\"sessionId\":\"s1\",\"status\":\"succeeded\",\"reference\":\"pay_late\"}";
+
+        assertTrue(service.handleWebhook(body, "sha256=" + sign(body)));
+
+        verify(repository).recordLatePayment(eq("s1"), eq("pay_late"), any());
+        verify(orderService, never()).markPaid(anyString());
+    }
+
+    private static PaymentSession session(String id, LocalDateTime expiresAt) {
+        PaymentSession session = new PaymentSession();
+        session.setId(id);
+        session.setOrderId("order-" + id);
+        session.setUserId("user-1");
+        session.setAmount(100.0);
+        session.setNextCheckAt(LocalDateTime.now());
+        session.setExpiresAt(expiresAt);
+        return session;
+    }
+
+    private static String sign(String body) {
+        return PaymentSessionService.sign(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"), body);
+    }
+}
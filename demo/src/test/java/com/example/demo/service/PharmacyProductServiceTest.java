@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.dto.PharmacyProductDTO;
+import com.example.demo.entity.PharmacyProduct;
+import com.example.demo.repository.PharmacyProductRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Bulk product patching, with the repository backed by an in-memory catalogue
+ */
+public class PharmacyProductServiceTest {
+
+    private PharmacyProductRepository productRepository;
+    private JdbcTemplate jdbcTemplate;
+    private PharmacyProductService productService;
+    private Map<String, PharmacyProduct> catalogue;
+
+    @BeforeEach
+    public void setUp() {
+        catalogue = Map.of("p1", product("p1", 10f), "p2", product("p2", 20f));
+        productRepository = mock(PharmacyProductRepository.class);
+        when(productRepository.findAllById(anyIterable())).thenAnswer(inv -> {
+            List<PharmacyProduct> found = new ArrayList<>();
+            for (Object id : (Iterable<?>) inv.getArgument(0)) {
+                if (catalogue.containsKey(id)) {
+                    found.add(catalogue.get(id));
+                }
+            }
+            return found;
+        });
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+        jdbcTemplate = mock(JdbcTemplate.class);
+        productService = new PharmacyProductService(productRepository, entityManager, jdbcTemplate);
+    }
+
+    @Test
+    public void testPatch_AppliesFieldsAndReportsUnknownIds() {
+        PharmacyProductService.PatchResult result = productService.patchProducts(List.of(
+                patch("p1", 12f, null),
+                patch("missing", 5f, null),
+                patch("p2", null, 7)));
+
+        assertEquals(2, result.updated());
+        assertEquals(List.of("missing"), result.notFound());
+        assertEquals(12f, catalogue.get("p1").getPrice());
+        assertEquals(20f, catalogue.get("p2").getPrice());
+    }
+
+    @Test
+    public void testPatch_StockCountsSentAsOneBatch() {
+        productService.patchProducts(List.of(patch("p1", null, 3), patch("p2", null, 0), patch("p2", null, 7)));
+
+        // The setStockQuantity statement, one batch entry per product (later entries for an id win)
+        ArgumentCaptor<BatchPreparedStatementSetter> batch = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbcTemplate).batchUpdate(
+                eq("UPDATE pharmacy_products SET stock_quantity = ?, in_stock = (? > 0) WHERE id = ?"), batch.capture());
+        assertEquals(2, batch.getValue().getBatchSize());
+        verify(productRepository, never()).setStockQuantity(anyString(), anyInt());
+    }
+
+    @Test
+    public void testPatch_NoStockCountsNoBatch() {
+        productService.patchProducts(List.of(patch("p1", 12f, null)));
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    public void testPatch_InvalidEntryRejectsWholeRequest() {
+        RuntimeException noId = assertThrows(RuntimeException.class,
+                () -> productService.patchProducts(List.of(patch("p1", 12f, null), patch(null, 1f, null))));
+        assertEquals("Each product update needs an id", noId.getMessage());
+
+        RuntimeException negative = assertThrows(RuntimeException.class,
+                () -> productService.patchProducts(List.of(patch("p1", 12f, null), patch("p2", null, -1))));
+        assertTrue(negative.getMessage().startsWith("p2: "));
+
+        assertThrows(RuntimeException.class, () -> productService.patchProducts(List.of()));
+        verify(productRepository, never()).findAllById(anyIterable());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+        assertEquals(10f, catalogue.get("p1").getPrice());
+    }
+
+    private static PharmacyProduct product(String id, float price) {
+        PharmacyProduct product = new PharmacyProduct();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setPrice(price);
+        return product;
+    }
+
+    private static PharmacyProductDTO patch(String id, Float price, Integer stockQuantity) {
+        PharmacyProductDTO dto = new PharmacyProductDTO();
+        dto.setId(id);
+        dto.setPrice(price);
+        dto.setStockQuantity(stockQuantity);
+        return dto;
+    }
+}